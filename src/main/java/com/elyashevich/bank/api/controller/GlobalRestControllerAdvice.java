@@ -2,10 +2,13 @@ package com.elyashevich.bank.api.controller;
 
 import com.elyashevich.bank.api.dto.exception.ExceptionBodyDto;
 import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.IdempotencyKeyConflictException;
 import com.elyashevich.bank.exception.InvalidTokenException;
 import com.elyashevich.bank.exception.PasswordMismatchException;
 import com.elyashevich.bank.exception.ResourceAlreadyExistsException;
 import com.elyashevich.bank.exception.ResourceNotFoundException;
+import com.elyashevich.bank.exception.RateLimitExceededException;
+import com.elyashevich.bank.exception.TransferQueueFullException;
 import io.swagger.v3.oas.annotations.Hidden;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -31,6 +34,9 @@ public class GlobalRestControllerAdvice {
     private static final String PASSWORD_MISMATCH_MESSAGE = "Password mismatch.";
     private static final String INVALID_TOKEN_MESSAGE = "Invalid token.";
     private static final String RESOURCE_ALREADY_EXISTS_MESSAGE = "Resource already exists.";
+    private static final String IDEMPOTENCY_KEY_CONFLICT_MESSAGE = "Idempotency key conflict.";
+    private static final String TRANSFER_QUEUE_FULL_MESSAGE = "Transfer queue is full.";
+    private static final String RATE_LIMIT_EXCEEDED_MESSAGE = "Too many requests.";
 
 
     @ExceptionHandler(PasswordMismatchException.class)
@@ -65,6 +71,30 @@ public class GlobalRestControllerAdvice {
             .body(this.handleException(exception, RESOURCE_ALREADY_EXISTS_MESSAGE));
     }
 
+    @ExceptionHandler(IdempotencyKeyConflictException.class)
+    public ResponseEntity<ExceptionBodyDto> handleIdempotencyKeyConflictException(
+        final IdempotencyKeyConflictException exception
+    ) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+            .body(this.handleException(exception, IDEMPOTENCY_KEY_CONFLICT_MESSAGE));
+    }
+
+    @ExceptionHandler(TransferQueueFullException.class)
+    public ResponseEntity<ExceptionBodyDto> handleTransferQueueFullException(
+        final TransferQueueFullException exception
+    ) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(this.handleException(exception, TRANSFER_QUEUE_FULL_MESSAGE));
+    }
+
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ExceptionBodyDto> handleRateLimitExceededException(
+        final RateLimitExceededException exception
+    ) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .body(this.handleException(exception, RATE_LIMIT_EXCEEDED_MESSAGE));
+    }
+
     @ExceptionHandler(HttpRequestMethodNotSupportedException.class)
     public ResponseEntity<ExceptionBodyDto> handleHttpRequestMethodNotSupportedException(
         final HttpRequestMethodNotSupportedException exception
@@ -1,9 +1,18 @@
 package com.elyashevich.bank.api.controller;
 
 import com.elyashevich.bank.api.dto.exception.ExceptionBodyDto;
+import com.elyashevich.bank.api.dto.transfer.TransferBatchDto;
 import com.elyashevich.bank.api.dto.transfer.TransferDto;
+import com.elyashevich.bank.api.dto.transfer.TransferRequestDto;
+import com.elyashevich.bank.api.mapper.TransferRequestMapper;
+import com.elyashevich.bank.domain.model.TransferCommand;
+import com.elyashevich.bank.exception.RateLimitExceededException;
+import com.elyashevich.bank.service.IdempotencyService;
+import com.elyashevich.bank.service.RateLimitService;
+import com.elyashevich.bank.service.TransferRequestService;
 import com.elyashevich.bank.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,11 +22,17 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
+import java.util.UUID;
+
 
 @RestController
 @RequestMapping("/api/v1/transfers")
@@ -26,7 +41,14 @@ import org.springframework.web.bind.annotation.RestController;
 @SecurityRequirement(name = "bearerAuth")
 public class TransferController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final TransferService transferService;
+    private final IdempotencyService idempotencyService;
+    private final TransferRequestService transferRequestService;
+    private final TransferRequestMapper transferRequestMapper;
+    private final RateLimitService rateLimitService;
 
     @Operation(
             summary = "Perform money transfer",
@@ -52,11 +74,23 @@ public class TransferController {
                     @ApiResponse(
                             responseCode = "404",
                             description = "Recipient account not found"
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Idempotency key is in use by another request",
+                            content = @Content(schema = @Schema(implementation = ExceptionBodyDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "429",
+                            description = "Too many transfers from authenticated user, retry later",
+                            content = @Content(schema = @Schema(implementation = ExceptionBodyDto.class))
                     )
             }
     )
     @PostMapping
     public ResponseEntity<Void> perform(
+            @Parameter(description = "Client generated key that makes retries of the same transfer safe")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
             @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     description = "Transfer details",
                     required = true,
@@ -64,7 +98,151 @@ public class TransferController {
             )
             @Valid @RequestBody TransferDto dto) {
         var userId = Long.valueOf(SecurityContextHolder.getContext().getAuthentication().getName());
-        this.transferService.transfer(userId, dto.toUserId(), dto.amount());
+        this.acquireTransferPermits(userId, 1);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            this.transferService.transfer(userId, dto.toUserId(), dto.amount());
+            return ResponseEntity.ok().build();
+        }
+        var fingerprint = dto.toUserId() + ":" + dto.amount().stripTrailingZeros().toPlainString();
+        var executed = this.idempotencyService.executeOnce(userId, idempotencyKey, fingerprint,
+                () -> this.transferService.transfer(userId, dto.toUserId(), dto.amount()));
+        if (!executed) {
+            return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED_HEADER, "true").build();
+        }
         return ResponseEntity.ok().build();
     }
+
+    @Operation(
+            summary = "Perform batch money transfer",
+            description = "Transfer money from authenticated user to several accounts in a single transaction",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "All transfers completed successfully"
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid batch transfer request",
+                            content = @Content(schema = @Schema(implementation = ExceptionBodyDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized - authentication required"
+                    ),
+                    @ApiResponse(
+                            responseCode = "403",
+                            description = "Forbidden - insufficient funds or other business rule violation"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Recipient account not found"
+                    ),
+                    @ApiResponse(
+                            responseCode = "429",
+                            description = "Too many transfers from authenticated user, retry later; batches larger than the rate limit capacity are always rejected",
+                            content = @Content(schema = @Schema(implementation = ExceptionBodyDto.class))
+                    )
+            }
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<Void> performBatch(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Batch transfer details",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = TransferBatchDto.class))
+            )
+            @Valid @RequestBody TransferBatchDto dto) {
+        var userId = Long.valueOf(SecurityContextHolder.getContext().getAuthentication().getName());
+        this.acquireTransferPermits(userId, dto.transfers().size());
+        var transfers = dto.transfers().stream()
+                .map(transfer -> new TransferCommand(userId, transfer.toUserId(), transfer.amount()))
+                .toList();
+        this.transferService.transferBatch(transfers);
+        return ResponseEntity.ok().build();
+    }
+
+    @Operation(
+            summary = "Submit money transfer for asynchronous processing",
+            description = "Validate and queue a transfer from authenticated user, the result is available by the returned id",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "202",
+                            description = "Transfer accepted for processing",
+                            content = @Content(schema = @Schema(implementation = TransferRequestDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid transfer request",
+                            content = @Content(schema = @Schema(implementation = ExceptionBodyDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized - authentication required"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Recipient account not found"
+                    ),
+                    @ApiResponse(
+                            responseCode = "429",
+                            description = "Too many transfers from authenticated user, retry later",
+                            content = @Content(schema = @Schema(implementation = ExceptionBodyDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Transfer queue is full, retry later",
+                            content = @Content(schema = @Schema(implementation = ExceptionBodyDto.class))
+                    )
+            }
+    )
+    @PostMapping("/async")
+    public ResponseEntity<TransferRequestDto> performAsync(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                    description = "Transfer details",
+                    required = true,
+                    content = @Content(schema = @Schema(implementation = TransferDto.class))
+            )
+            @Valid @RequestBody TransferDto dto) {
+        var userId = Long.valueOf(SecurityContextHolder.getContext().getAuthentication().getName());
+        this.acquireTransferPermits(userId, 1);
+        var request = this.transferRequestService.submit(userId, dto.toUserId(), dto.amount());
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/transfers/" + request.getId()))
+                .body(this.transferRequestMapper.toDto(request));
+    }
+
+    @Operation(
+            summary = "Get asynchronous transfer status",
+            description = "Return the processing status of a transfer submitted by authenticated user",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Transfer status",
+                            content = @Content(schema = @Schema(implementation = TransferRequestDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized - authentication required"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Transfer request not found"
+                    )
+            }
+    )
+    @GetMapping("/{id}")
+    public ResponseEntity<TransferRequestDto> findById(
+            @Parameter(description = "Transfer request ID", required = true)
+            @PathVariable UUID id) {
+        var userId = Long.valueOf(SecurityContextHolder.getContext().getAuthentication().getName());
+        var request = this.transferRequestService.findById(id, userId);
+        return ResponseEntity.ok(this.transferRequestMapper.toDto(request));
+    }
+
+    // Runs before idempotency, lock and database work, so a throttled client costs nothing downstream
+    private void acquireTransferPermits(Long userId, int permits) {
+        if (!this.rateLimitService.tryAcquire(userId, permits)) {
+            throw new RateLimitExceededException("User with id: '%s' exceeded transfer rate limit with %d transfers".formatted(userId, permits));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.elyashevich.bank.api.dto.transfer;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+@Schema(description = "Batch transfer request data")
+public record TransferBatchDto(
+        @ArraySchema(
+                schema = @Schema(implementation = TransferDto.class),
+                arraySchema = @Schema(description = "Transfers executed in a single transaction"),
+                minItems = 1,
+                maxItems = 1000
+        )
+        @NotEmpty(message = "Transfers must be specified")
+        @Size(max = 1000, message = "Maximum batch size is 1000 transfers")
+        List<@Valid TransferDto> transfers
+) {
+}
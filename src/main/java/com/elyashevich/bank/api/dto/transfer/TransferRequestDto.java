@@ -0,0 +1,33 @@
+package com.elyashevich.bank.api.dto.transfer;
+
+import com.elyashevich.bank.domain.model.TransferRequestStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Schema(description = "Asynchronous transfer request state")
+public record TransferRequestDto(
+        @Schema(description = "Transfer request ID", example = "0b8f3c1e-5d2a-4f7b-9a61-3c2d8e4f5a10")
+        UUID id,
+
+        @Schema(description = "Recipient user ID", example = "123")
+        Long toUserId,
+
+        @Schema(description = "Transfer amount", example = "1000.50")
+        BigDecimal amount,
+
+        @Schema(description = "Processing status", example = "PENDING")
+        TransferRequestStatus status,
+
+        @Schema(description = "Reason of the last failed attempt")
+        String failureReason,
+
+        @Schema(description = "Submission time")
+        Instant createdAt,
+
+        @Schema(description = "Last status change time")
+        Instant updatedAt
+) {
+}
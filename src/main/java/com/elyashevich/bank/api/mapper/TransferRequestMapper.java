@@ -0,0 +1,13 @@
+package com.elyashevich.bank.api.mapper;
+
+import com.elyashevich.bank.api.dto.transfer.TransferRequestDto;
+import com.elyashevich.bank.domain.entity.TransferRequest;
+import org.mapstruct.Mapper;
+
+import static org.mapstruct.MappingConstants.ComponentModel.SPRING;
+
+@Mapper(componentModel = SPRING)
+public interface TransferRequestMapper {
+
+    TransferRequestDto toDto(TransferRequest transferRequest);
+}
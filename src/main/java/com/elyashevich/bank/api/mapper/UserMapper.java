@@ -8,11 +8,13 @@ import com.elyashevich.bank.domain.entity.Account;
 import com.elyashevich.bank.domain.entity.EmailData;
 import com.elyashevich.bank.domain.entity.PhoneData;
 import com.elyashevich.bank.domain.entity.User;
+import com.elyashevich.bank.domain.model.Money;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 
 import static org.mapstruct.MappingConstants.ComponentModel.SPRING;
@@ -60,7 +62,7 @@ public interface UserMapper {
     @Named("mapBalanceToDto")
     default BigDecimal mapBalanceToDto(Account account) {
         return account == null ?
-                BigDecimal.ZERO : account.getBalance();
+                BigDecimal.ZERO : account.getTotalBalance().toBigDecimal();
     }
 
     default List<EmailData> mapSingleEmail(String email) {
@@ -76,8 +78,11 @@ public interface UserMapper {
     }
 
     default Account mapSingleBalance(BigDecimal balance) {
+        var money = balance == null ? Money.ZERO : Money.of(balance);
         return Account.builder()
-                .balance(balance == null ? BigDecimal.ZERO : balance)
+                .balance(money)
+                .initialDeposit(money)
+                .lastAccruedAt(Instant.now())
                 .build();
     }
 
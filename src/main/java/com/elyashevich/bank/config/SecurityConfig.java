@@ -3,7 +3,9 @@ package com.elyashevich.bank.config;
 import com.elyashevich.bank.security.JwtAuthenticationEntryPoint;
 import com.elyashevich.bank.security.JwtFilter;
 import com.elyashevich.bank.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -31,6 +33,12 @@ public class SecurityConfig {
     private final UserService userService;
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
 
+    @Value("${server.port:8080}")
+    private int serverPort = 8080;
+
+    @Value("${management.server.port:-1}")
+    private int managementPort = -1;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         return http
@@ -41,8 +49,10 @@ public class SecurityConfig {
                                 "/api/v1/auth/**",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
-                                "/swagger-ui.html"
+                                "/swagger-ui.html",
+                                "/actuator/health"
                         ).permitAll()
+                        .requestMatchers(this::isManagementRequest).permitAll()
                         .anyRequest().authenticated()
                 )
                 .authenticationProvider(this.authenticationProvider())
@@ -77,4 +87,9 @@ public class SecurityConfig {
         daoAuthenticationProvider.setUserDetailsService(this.userService);
         return daoAuthenticationProvider;
     }
-}
\ No newline at end of file
+
+    // Metrics are scraped without a token only on the separate management port, which is not published with the API
+    private boolean isManagementRequest(HttpServletRequest request) {
+        return managementPort > 0 && managementPort != serverPort && request.getLocalPort() == managementPort;
+    }
+}
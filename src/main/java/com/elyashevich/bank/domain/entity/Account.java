@@ -1,7 +1,10 @@
 package com.elyashevich.bank.domain.entity;
 
 
+import com.elyashevich.bank.domain.converter.MoneyConverter;
+import com.elyashevich.bank.domain.model.Money;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -9,6 +12,8 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -17,7 +22,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 
 @Entity
 @Table(name = "ACCOUNT")
@@ -37,8 +42,39 @@ public class Account {
     @JoinColumn(name = "user_id", unique = true)
     private User user;
 
+    @Convert(converter = MoneyConverter.class)
     @Column(name = "BALANCE", nullable = false, precision = 19, scale = 2)
-    private BigDecimal balance;
+    private Money balance;
+
+    // Lazy interest compounds BALANCE from LAST_ACCRUED_AT and caps it relative to the initial deposit
+    @Convert(converter = MoneyConverter.class)
+    @Column(name = "INITIAL_DEPOSIT", nullable = false, precision = 19, scale = 2)
+    private Money initialDeposit;
+
+    @Column(name = "LAST_ACCRUED_AT", nullable = false)
+    private Instant lastAccruedAt;
+
+    // Number of ACCOUNT_BUCKET rows that receive credits of a hot account, 0 for regular accounts
+    @Column(name = "BUCKET_COUNT", nullable = false)
+    private int bucketCount;
+
+    // Native balance updates bump it as well, so optimistic transfers notice them
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    private long version;
+
+    // Credits held in ACCOUNT_BUCKET, read only for hot accounts when a balance is shown
+    @Transient
+    private Money bucketBalance;
+
+    // Interest a read has accrued on top of BALANCE without writing it back
+    @Transient
+    private Money unsettledInterest;
+
+    public Money getTotalBalance() {
+        var total = unsettledInterest == null ? balance : balance.plus(unsettledInterest);
+        return bucketBalance == null ? total : total.plus(bucketBalance);
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,52 @@
+package com.elyashevich.bank.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Progress of a chunked job: {@code lastId} is the last row processed by the current run,
+ * {@code null} once the run completed.
+ */
+@Entity
+@Table(name = "JOB_CHECKPOINT")
+@Getter
+@Setter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class JobCheckpoint {
+
+    @Id
+    @Column(name = "JOB_NAME", nullable = false, length = 100)
+    private String jobName;
+
+    @Column(name = "LAST_ID")
+    private Long lastId;
+
+    @Column(name = "STARTED_AT")
+    private Instant startedAt;
+
+    @Column(name = "COMPLETED_AT")
+    private Instant completedAt;
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("JobCheckpoint{");
+        sb.append("jobName=").append(jobName);
+        sb.append(", lastId=").append(lastId);
+        sb.append(", startedAt=").append(startedAt);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package com.elyashevich.bank.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "TRANSFER_LEDGER")
+@Getter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "TRANSFER_ID", nullable = false, updatable = false)
+    private UUID transferId;
+
+    @Column(name = "USER_ID", nullable = false, updatable = false)
+    private Long userId;
+
+    // Negative for the debit entry, positive for the credit entry
+    @Column(name = "AMOUNT", nullable = false, updatable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    // Set once the entry is settled, either folded into the balance or cancelled
+    @Column(name = "APPLIED", nullable = false)
+    private boolean applied;
+
+    // Only for hand-off credits: the roll-forward leaves them to the destination shard until then
+    @Column(name = "CLAIM_DEADLINE")
+    private Instant claimDeadline;
+
+    @Column(name = "CANCELLED", nullable = false)
+    private boolean cancelled;
+
+    @Column(name = "CREATED_AT", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("TransferLedgerEntry{");
+        sb.append("id=").append(id);
+        sb.append(", transferId=").append(transferId);
+        sb.append(", userId=").append(userId);
+        sb.append(", amount=").append(amount);
+        sb.append(", applied=").append(applied);
+        sb.append(", cancelled=").append(cancelled);
+        sb.append('}');
+        return sb.toString();
+    }
+}
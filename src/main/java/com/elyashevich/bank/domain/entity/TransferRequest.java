@@ -0,0 +1,74 @@
+package com.elyashevich.bank.domain.entity;
+
+import com.elyashevich.bank.domain.model.TransferRequestStatus;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "TRANSFER_REQUEST")
+@Getter
+@Setter
+@EqualsAndHashCode
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferRequest {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "FROM_USER_ID", nullable = false, updatable = false)
+    private Long fromUserId;
+
+    @Column(name = "TO_USER_ID", nullable = false, updatable = false)
+    private Long toUserId;
+
+    @Column(name = "AMOUNT", nullable = false, updatable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "STATUS", nullable = false, length = 20)
+    private TransferRequestStatus status;
+
+    @Column(name = "ATTEMPTS", nullable = false)
+    private int attempts;
+
+    @Column(name = "FAILURE_REASON", length = 500)
+    private String failureReason;
+
+    @Column(name = "CREATED_AT", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "UPDATED_AT", nullable = false)
+    private Instant updatedAt;
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("TransferRequest{");
+        sb.append("id=").append(id);
+        sb.append(", fromUserId=").append(fromUserId);
+        sb.append(", toUserId=").append(toUserId);
+        sb.append(", amount=").append(amount);
+        sb.append(", status=").append(status);
+        sb.append(", attempts=").append(attempts);
+        sb.append('}');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package com.elyashevich.bank.domain.model;
+
+import java.math.BigDecimal;
+
+public interface AvailableBalance {
+
+    Long getUserId();
+
+    BigDecimal getBalance();
+}
@@ -0,0 +1,92 @@
+package com.elyashevich.bank.domain.model;
+
+/**
+ * A chunk of account balances held as primitive columns of ids and kopecks, so interest is applied
+ * in one loop over {@code long[]} instead of per boxed row. The columns are reused from chunk to chunk.
+ */
+public final class BalanceColumns {
+
+    private static final long INTEREST_PERCENT = 110;
+    private static final long MAX_BALANCE_PERCENT = 207;
+    // Keeps balance * MAX_BALANCE_PERCENT inside a long, so the loop needs no overflow checks
+    private static final long MAX_MINOR_UNITS = Long.MAX_VALUE / MAX_BALANCE_PERCENT;
+
+    private final long[] ids;
+    private final long[] balances;
+    private final long[] accrued;
+    private final int[] changedRows;
+    private int size;
+    private int changed;
+
+    public BalanceColumns(int capacity) {
+        ids = new long[capacity];
+        balances = new long[capacity];
+        accrued = new long[capacity];
+        changedRows = new int[capacity];
+    }
+
+    public void add(long id, long minorUnits) {
+        if (Math.abs(minorUnits) > MAX_MINOR_UNITS) {
+            throw new ArithmeticException("Balance of account %s is too large to accrue interest".formatted(id));
+        }
+        ids[size] = id;
+        balances[size] = minorUnits;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+        changed = 0;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long lastId() {
+        return ids[size - 1];
+    }
+
+    /**
+     * Accrues interest on every row and returns the number of rows whose balance changed,
+     * which are then read with {@link #changedId(int)} and {@link #changedBalance(int)}.
+     */
+    public int accrue() {
+        accrue(balances, accrued, size);
+        changed = 0;
+        for (var row = 0; row < size; row++) {
+            if (accrued[row] != balances[row]) {
+                changedRows[changed++] = row;
+            }
+        }
+        return changed;
+    }
+
+    public long changedId(int index) {
+        return ids[changedRows[index]];
+    }
+
+    public Money changedBalance(int index) {
+        return Money.ofMinor(accrued[changedRows[index]]);
+    }
+
+    /**
+     * 10% interest, skipped where it would reach 207% of the balance; rounds half away from zero
+     * exactly like {@link Money#multiply(long, long)} and compares like {@link Money#compareToRatio}.
+     */
+    public static void accrue(long[] balances, long[] accrued, int size) {
+        for (var row = 0; row < size; row++) {
+            var balance = balances[row];
+            var grown = (balance * INTEREST_PERCENT + (balance < 0 ? -50 : 50)) / 100;
+            accrued[row] = grown * 100 < balance * MAX_BALANCE_PERCENT ? grown : balance;
+        }
+    }
+}
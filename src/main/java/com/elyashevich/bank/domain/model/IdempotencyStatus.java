@@ -0,0 +1,5 @@
+package com.elyashevich.bank.domain.model;
+
+public enum IdempotencyStatus {
+    COMPLETED
+}
@@ -0,0 +1,9 @@
+package com.elyashevich.bank.domain.model;
+
+public enum InterestMode {
+    ENTITY,
+    SET,
+    STREAMING,
+    PARTITIONED,
+    LAZY
+}
@@ -0,0 +1,7 @@
+package com.elyashevich.bank.domain.model;
+
+public record LockHandle(
+        String key,
+        String owner
+) {
+}
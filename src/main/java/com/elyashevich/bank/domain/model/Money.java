@@ -0,0 +1,77 @@
+package com.elyashevich.bank.domain.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amount of rubles held as a whole number of kopecks. Arithmetic is exact and overflow throws
+ * {@link ArithmeticException}, so balances never silently wrap.
+ */
+public record Money(long minorUnits) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final int SCALE = 2;
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits));
+    }
+
+    /**
+     * Multiplies by {@code numerator / denominator}, rounding half away from zero like a NUMERIC column does.
+     */
+    public Money multiply(long numerator, long denominator) {
+        var product = Math.multiplyExact(minorUnits, numerator);
+        var quotient = product / denominator;
+        var remainder = product % denominator;
+        if (Math.abs(remainder) * 2 >= denominator) {
+            quotient += Long.signum(product);
+        }
+        return ofMinor(quotient);
+    }
+
+    /**
+     * Compares this amount with {@code base * numerator / denominator} without rounding.
+     */
+    public int compareToRatio(Money base, long numerator, long denominator) {
+        return Long.compare(Math.multiplyExact(minorUnits, denominator), Math.multiplyExact(base.minorUnits, numerator));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,10 @@
+package com.elyashevich.bank.domain.model;
+
+import java.math.BigDecimal;
+
+public record TransferCommand(
+        Long fromUserId,
+        Long toUserId,
+        BigDecimal amount
+) {
+}
@@ -0,0 +1,8 @@
+package com.elyashevich.bank.domain.model;
+
+public enum TransferMode {
+    PESSIMISTIC,
+    OPTIMISTIC,
+    ATOMIC,
+    LEDGER
+}
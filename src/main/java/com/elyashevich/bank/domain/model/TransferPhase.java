@@ -0,0 +1,11 @@
+package com.elyashevich.bank.domain.model;
+
+public enum TransferPhase {
+    VALIDATION,
+    LOCK,
+    FETCH,
+    CONDITIONS,
+    SAVE,
+    COMMIT,
+    UNLOCK
+}
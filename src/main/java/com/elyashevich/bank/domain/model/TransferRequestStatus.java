@@ -0,0 +1,8 @@
+package com.elyashevich.bank.domain.model;
+
+public enum TransferRequestStatus {
+    PENDING,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,22 @@
+package com.elyashevich.bank.exception;
+
+public class IdempotencyKeyConflictException extends RuntimeException {
+    public IdempotencyKeyConflictException() {
+    }
+
+    public IdempotencyKeyConflictException(String message) {
+        super(message);
+    }
+
+    public IdempotencyKeyConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public IdempotencyKeyConflictException(Throwable cause) {
+        super(cause);
+    }
+
+    public IdempotencyKeyConflictException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
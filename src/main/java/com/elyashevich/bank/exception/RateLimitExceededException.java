@@ -0,0 +1,22 @@
+package com.elyashevich.bank.exception;
+
+public class RateLimitExceededException extends RuntimeException {
+    public RateLimitExceededException() {
+    }
+
+    public RateLimitExceededException(String message) {
+        super(message);
+    }
+
+    public RateLimitExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RateLimitExceededException(Throwable cause) {
+        super(cause);
+    }
+
+    public RateLimitExceededException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
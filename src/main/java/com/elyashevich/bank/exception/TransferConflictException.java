@@ -0,0 +1,22 @@
+package com.elyashevich.bank.exception;
+
+public class TransferConflictException extends BusinessException {
+    public TransferConflictException() {
+    }
+
+    public TransferConflictException(String message) {
+        super(message);
+    }
+
+    public TransferConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public TransferConflictException(Throwable cause) {
+        super(cause);
+    }
+
+    public TransferConflictException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
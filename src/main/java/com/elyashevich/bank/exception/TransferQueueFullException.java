@@ -0,0 +1,22 @@
+package com.elyashevich.bank.exception;
+
+public class TransferQueueFullException extends RuntimeException {
+    public TransferQueueFullException() {
+    }
+
+    public TransferQueueFullException(String message) {
+        super(message);
+    }
+
+    public TransferQueueFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public TransferQueueFullException(Throwable cause) {
+        super(cause);
+    }
+
+    public TransferQueueFullException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+}
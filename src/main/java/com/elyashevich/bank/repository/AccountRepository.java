@@ -5,9 +5,13 @@ import com.elyashevich.bank.domain.entity.User;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
@@ -17,4 +21,158 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT a FROM Account a WHERE a.user.id = :userId")
     Optional<Account> findByUserIdWithPessimisticLock(@Param("userId") Long userId);
-}
+
+    Optional<Account> findByUserId(Long userId);
+
+    @Query("SELECT a.user.id FROM Account a WHERE a.user.id IN :userIds")
+    List<Long> findExistingUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT a FROM Account a WHERE a.user.id = :userId")
+    Optional<Account> findByUserIdWithSharedLock(@Param("userId") Long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT a
+            FROM Account a
+            JOIN FETCH a.user u
+            WHERE u.id IN :userIds
+            ORDER BY u.id
+            """)
+    List<Account> findAllByUserIdsWithPessimisticLock(@Param("userIds") Collection<Long> userIds);
+
+    @Modifying
+    @Query(value = """
+            UPDATE ACCOUNT
+            SET BALANCE = BALANCE - :amount, VERSION = VERSION + 1
+            WHERE USER_ID = :userId AND BALANCE >= :amount
+            """, nativeQuery = true)
+    int debitIfSufficientFunds(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = """
+            UPDATE ACCOUNT
+            SET BALANCE = BALANCE + :amount, VERSION = VERSION + 1
+            WHERE USER_ID = :userId AND BALANCE + :amount <= BALANCE * 2.07
+            """, nativeQuery = true)
+    int creditWithinMaxBalance(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = """
+            UPDATE ACCOUNT
+            SET BALANCE = BALANCE + :amount, VERSION = VERSION + 1
+            WHERE USER_ID = :userId
+            """, nativeQuery = true)
+    int credit(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    @Query(value = "SELECT COALESCE(SUM(BALANCE), 0) FROM ACCOUNT_BUCKET WHERE ACCOUNT_ID = :accountId", nativeQuery = true)
+    BigDecimal sumBuckets(@Param("accountId") Long accountId);
+
+    @Modifying
+    @Query(value = "UPDATE ACCOUNT_BUCKET SET BALANCE = 0 WHERE ACCOUNT_ID = :accountId AND BALANCE <> 0", nativeQuery = true)
+    int clearBuckets(@Param("accountId") Long accountId);
+
+    @Modifying
+    @Query(value = """
+            UPDATE ACCOUNT_BUCKET
+            SET BALANCE = BALANCE + :amount
+            WHERE ACCOUNT_ID = :accountId AND BUCKET = :bucket
+            """, nativeQuery = true)
+    int creditBucket(@Param("accountId") Long accountId, @Param("bucket") int bucket, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO ACCOUNT_BUCKET (ACCOUNT_ID, BUCKET, BALANCE)
+            SELECT a.ID, g.BUCKET, 0
+            FROM ACCOUNT a
+            CROSS JOIN generate_series(0, :bucketCount - 1) AS g(BUCKET)
+            WHERE a.USER_ID = :userId
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int createBuckets(@Param("userId") Long userId, @Param("bucketCount") int bucketCount);
+
+    @Query(value = "SELECT ID FROM ACCOUNT WHERE BUCKET_COUNT > 0 ORDER BY ID", nativeQuery = true)
+    List<Long> findBucketedAccountIds();
+
+    @Query(value = "SELECT ID FROM ACCOUNT WHERE ID = :accountId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("accountId") Long accountId);
+
+    // Must run after lockById in the same transaction: with the exclusive row lock held no bucket credit
+    // is in flight, and this statement's snapshot already sees every committed one
+    @Modifying
+    @Query(value = """
+            WITH total AS (
+                SELECT COALESCE(SUM(BALANCE), 0) AS AMOUNT FROM ACCOUNT_BUCKET WHERE ACCOUNT_ID = :accountId
+            ), cleared AS (
+                UPDATE ACCOUNT_BUCKET SET BALANCE = 0 WHERE ACCOUNT_ID = :accountId AND BALANCE <> 0
+            )
+            UPDATE ACCOUNT a
+            SET BALANCE = a.BALANCE + total.AMOUNT, VERSION = a.VERSION + 1
+            FROM total
+            WHERE a.ID = :accountId AND total.AMOUNT <> 0
+            """, nativeQuery = true)
+    int foldBuckets(@Param("accountId") Long accountId);
+
+    @Query("SELECT a.bucketCount FROM Account a WHERE a.user.id = :userId")
+    Optional<Integer> findBucketCountByUserId(@Param("userId") Long userId);
+
+    // Bucket count only grows, so balances already spread over existing buckets are never orphaned
+    @Modifying
+    @Query(value = """
+            UPDATE ACCOUNT
+            SET BUCKET_COUNT = :bucketCount, VERSION = VERSION + 1
+            WHERE USER_ID = :userId AND BUCKET_COUNT < :bucketCount
+            """, nativeQuery = true)
+    int updateBucketCount(@Param("userId") Long userId, @Param("bucketCount") int bucketCount);
+
+    @Query("SELECT MIN(a.id) FROM Account a")
+    Long findMinId();
+
+    @Query("SELECT MAX(a.id) FROM Account a")
+    Long findMaxId();
+
+    // 10% interest, skipped where it would reach 207% of the balance; ROUND matches the rounding of Money.
+    // LAST_ACCRUED_AT moves with every sweep, so switching to lazy interest does not compound the same periods again
+    @Modifying
+    @Query(value = """
+            UPDATE ACCOUNT
+            SET BALANCE = ROUND(BALANCE * 1.10, 2), LAST_ACCRUED_AT = CURRENT_TIMESTAMP, VERSION = VERSION + 1
+            WHERE ID BETWEEN :fromId AND :toId AND ROUND(BALANCE * 1.10, 2) < BALANCE * 2.07
+            """, nativeQuery = true)
+    int accrueInterest(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Modifying
+    @Query(value = """
+            UPDATE ACCOUNT
+            SET BALANCE = ROUND(BALANCE * 1.10, 2), LAST_ACCRUED_AT = CURRENT_TIMESTAMP, VERSION = VERSION + 1
+            WHERE ID IN (:ids) AND ROUND(BALANCE * 1.10, 2) < BALANCE * 2.07
+            """, nativeQuery = true)
+    int accrueInterest(@Param("ids") Collection<Long> ids);
+
+    // Same accrual, but rows locked by transfers are skipped instead of waited for; returns the skipped ids
+    @Query(value = """
+            WITH locked AS (
+                SELECT ID FROM ACCOUNT WHERE ID BETWEEN :fromId AND :toId FOR UPDATE SKIP LOCKED
+            ), accrued AS (
+                UPDATE ACCOUNT a
+                SET BALANCE = ROUND(a.BALANCE * 1.10, 2), LAST_ACCRUED_AT = CURRENT_TIMESTAMP, VERSION = a.VERSION + 1
+                FROM locked
+                WHERE a.ID = locked.ID AND ROUND(a.BALANCE * 1.10, 2) < a.BALANCE * 2.07
+            )
+            SELECT ID FROM ACCOUNT WHERE ID BETWEEN :fromId AND :toId AND ID NOT IN (SELECT ID FROM locked)
+            """, nativeQuery = true)
+    List<Long> accrueInterestSkipLocked(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query(value = """
+            WITH locked AS (
+                SELECT ID FROM ACCOUNT WHERE ID IN (:ids) FOR UPDATE SKIP LOCKED
+            ), accrued AS (
+                UPDATE ACCOUNT a
+                SET BALANCE = ROUND(a.BALANCE * 1.10, 2), LAST_ACCRUED_AT = CURRENT_TIMESTAMP, VERSION = a.VERSION + 1
+                FROM locked
+                WHERE a.ID = locked.ID AND ROUND(a.BALANCE * 1.10, 2) < a.BALANCE * 2.07
+            )
+            SELECT ID FROM ACCOUNT WHERE ID IN (:ids) AND ID NOT IN (SELECT ID FROM locked)
+            """, nativeQuery = true)
+    List<Long> accrueInterestSkipLocked(@Param("ids") Collection<Long> ids);
+}
\ No newline at end of file
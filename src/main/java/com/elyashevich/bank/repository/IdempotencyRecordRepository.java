@@ -0,0 +1,37 @@
+package com.elyashevich.bank.repository;
+
+import com.elyashevich.bank.domain.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndKeyHash(Long userId, String keyHash);
+
+    // Only a duplicate of this key is skipped, any other violation still fails. A concurrent insert of the same key
+    // is waited for, and the row is skipped only if that insert commits
+    @Modifying
+    @Query(value = """
+            INSERT INTO IDEMPOTENCY_KEY (USER_ID, KEY_HASH, REQUEST_HASH, STATUS, CREATED_AT)
+            VALUES (:userId, :keyHash, :requestHash, :status, :createdAt)
+            ON CONFLICT ON CONSTRAINT uk_idempotency_key_user_key DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(
+            @Param("userId") Long userId,
+            @Param("keyHash") String keyHash,
+            @Param("requestHash") String requestHash,
+            @Param("status") String status,
+            @Param("createdAt") Instant createdAt
+    );
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :threshold")
+    int deleteAllCreatedBefore(@Param("threshold") Instant threshold);
+}
@@ -0,0 +1,77 @@
+package com.elyashevich.bank.repository;
+
+import com.elyashevich.bank.domain.entity.JobCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO JOB_CHECKPOINT (JOB_NAME) VALUES (:jobName) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int createIfAbsent(@Param("jobName") String jobName);
+
+    // Holding this lock serializes the chunks of a job across nodes, so concurrent runs share one pass
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM JobCheckpoint c WHERE c.jobName = :jobName")
+    Optional<JobCheckpoint> findByJobNameWithPessimisticLock(@Param("jobName") String jobName);
+
+    // Inserted in the transaction that processes the block: a second node blocks on the key until
+    // that transaction ends and then gets 0 if the block was done
+    @Modifying
+    @Query(value = """
+            INSERT INTO JOB_PARTITION_RUN (JOB_NAME, TICK, BLOCK_ID, COMPLETED_AT)
+            VALUES (:jobName, :tick, :block, now())
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int markBlockRun(@Param("jobName") String jobName, @Param("tick") long tick, @Param("block") int block);
+
+    // Accounts a block skipped because transfers held them, committed with the block so a crash can not lose them
+    @Modifying
+    @Query(value = """
+            INSERT INTO JOB_SKIPPED_ACCOUNT (JOB_NAME, TICK, ACCOUNT_ID)
+            SELECT :jobName, :tick, a.ID FROM ACCOUNT a WHERE a.ID IN (:ids)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int addSkippedAccounts(@Param("jobName") String jobName, @Param("tick") long tick, @Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT MIN(TICK) FROM JOB_SKIPPED_ACCOUNT WHERE JOB_NAME = :jobName", nativeQuery = true)
+    Long findOldestSkippedTick(@Param("jobName") String jobName);
+
+    // Locked until the accounts are accrued and removed in the same transaction, so no two nodes retry one account
+    @Query(value = """
+            SELECT ACCOUNT_ID FROM JOB_SKIPPED_ACCOUNT
+            WHERE JOB_NAME = :jobName AND TICK = :tick
+            ORDER BY ACCOUNT_ID
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> lockSkippedAccounts(@Param("jobName") String jobName, @Param("tick") long tick, @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT ACCOUNT_ID FROM JOB_SKIPPED_ACCOUNT
+            WHERE JOB_NAME = :jobName AND TICK = :tick AND ACCOUNT_ID IN (:ids)
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<Long> lockSkippedAccounts(@Param("jobName") String jobName, @Param("tick") long tick, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM JOB_SKIPPED_ACCOUNT WHERE JOB_NAME = :jobName AND TICK = :tick AND ACCOUNT_ID IN (:ids)", nativeQuery = true)
+    int deleteSkippedAccounts(@Param("jobName") String jobName, @Param("tick") long tick, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query(value = "DELETE FROM JOB_PARTITION_RUN WHERE COMPLETED_AT < :before", nativeQuery = true)
+    int deletePartitionRunsBefore(@Param("before") Instant before);
+
+    // Database clock, shared by all nodes, so they agree on the current tick
+    @Query(value = "SELECT CAST(FLOOR(EXTRACT(EPOCH FROM clock_timestamp()) * 1000) AS BIGINT)", nativeQuery = true)
+    long currentTimeMillis();
+}
\ No newline at end of file
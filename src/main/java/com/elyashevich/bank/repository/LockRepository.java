@@ -0,0 +1,27 @@
+package com.elyashevich.bank.repository;
+
+import com.elyashevich.bank.domain.model.LockHandle;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distributed lock backend used by the transfer path.
+ * <p>
+ * The implementation is selected with {@code application.lock.backend}: {@code redis} (default),
+ * {@code advisory} (PostgreSQL transaction-scoped advisory locks) or {@code local} (in-JVM, single node only).
+ * Keys passed to {@link #tryLockAll} must already be sorted by the caller.
+ */
+public interface LockRepository {
+
+    Optional<LockHandle> lock(String key, long leaseTime, TimeUnit unit);
+
+    Optional<LockHandle> tryLock(String key, long waitTime, long leaseTime, TimeUnit unit);
+
+    List<LockHandle> tryLockAll(List<String> keys, long waitTime, long leaseTime, TimeUnit unit);
+
+    void unlock(LockHandle lock);
+
+    void unlockAll(List<LockHandle> locks);
+}
@@ -1,9 +0,0 @@
-package com.elyashevich.bank.repository;
-
-import java.util.concurrent.TimeUnit;
-
-public interface RedisLockRepository {
-    boolean lock(String key, long timeout, TimeUnit unit);
-
-    void unlock(String key);
-}
\ No newline at end of file
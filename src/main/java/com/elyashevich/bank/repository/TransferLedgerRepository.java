@@ -0,0 +1,77 @@
+package com.elyashevich.bank.repository;
+
+import com.elyashevich.bank.domain.entity.TransferLedgerEntry;
+import com.elyashevich.bank.domain.model.AvailableBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface TransferLedgerRepository extends JpaRepository<TransferLedgerEntry, Long> {
+
+    @Query(value = """
+            SELECT a.USER_ID AS userId,
+                   a.BALANCE + COALESCE((
+                       SELECT SUM(l.AMOUNT)
+                       FROM TRANSFER_LEDGER l
+                       WHERE l.USER_ID = a.USER_ID AND l.APPLIED = FALSE
+                   ), 0) + COALESCE((
+                       SELECT SUM(b.BALANCE)
+                       FROM ACCOUNT_BUCKET b
+                       WHERE b.ACCOUNT_ID = a.ID
+                   ), 0) AS balance
+            FROM ACCOUNT a
+            WHERE a.USER_ID IN (:userIds)
+            """, nativeQuery = true)
+    List<AvailableBalance> findAvailableBalances(@Param("userIds") Collection<Long> userIds);
+
+    // Entries inserted after the statement snapshot stay unapplied and are picked up by the next run.
+    // Hand-off credits are left to the destination shard, which applies the balance cap, until their claim deadline
+    @Modifying
+    @Query(value = """
+            WITH applied AS (
+                UPDATE TRANSFER_LEDGER
+                SET APPLIED = TRUE
+                WHERE ID IN (
+                    SELECT ID
+                    FROM TRANSFER_LEDGER
+                    WHERE APPLIED = FALSE
+                      AND (CLAIM_DEADLINE IS NULL OR CLAIM_DEADLINE < :now)
+                    ORDER BY ID
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING USER_ID, AMOUNT
+            ), totals AS (
+                SELECT USER_ID, SUM(AMOUNT) AS DELTA
+                FROM applied
+                GROUP BY USER_ID
+            )
+            UPDATE ACCOUNT a
+            SET BALANCE = a.BALANCE + t.DELTA, VERSION = a.VERSION + 1
+            FROM totals t
+            WHERE a.USER_ID = t.USER_ID
+            """, nativeQuery = true)
+    int rollForward(@Param("limit") int limit, @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE TransferLedgerEntry e
+            SET e.applied = true
+            WHERE e.transferId = :transferId AND e.amount > 0 AND e.applied = false
+            """)
+    int markCreditApplied(@Param("transferId") UUID transferId);
+
+    @Modifying
+    @Query("""
+            UPDATE TransferLedgerEntry e
+            SET e.applied = true, e.cancelled = true
+            WHERE e.transferId = :transferId AND e.amount > 0 AND e.applied = false
+            """)
+    int markCreditCancelled(@Param("transferId") UUID transferId);
+}
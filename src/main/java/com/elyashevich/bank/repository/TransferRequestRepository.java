@@ -0,0 +1,89 @@
+package com.elyashevich.bank.repository;
+
+import com.elyashevich.bank.domain.entity.TransferRequest;
+import com.elyashevich.bank.domain.model.TransferRequestStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface TransferRequestRepository extends JpaRepository<TransferRequest, UUID> {
+
+    Optional<TransferRequest> findByIdAndFromUserId(UUID id, Long fromUserId);
+
+    // Walks at most maxDepth entries of the status index instead of counting the whole queue
+    @Query(value = """
+            SELECT EXISTS (
+                SELECT 1 FROM TRANSFER_REQUEST WHERE STATUS = :status OFFSET :maxDepth - 1
+            )
+            """, nativeQuery = true)
+    boolean hasAtLeast(@Param("status") String status, @Param("maxDepth") long maxDepth);
+
+    // A lock timeout of -2 renders as FOR UPDATE SKIP LOCKED, so concurrent pollers claim disjoint rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM TransferRequest r WHERE r.status = :status ORDER BY r.createdAt")
+    List<TransferRequest> findAllForProcessing(@Param("status") TransferRequestStatus status, Pageable pageable);
+
+    @Modifying
+    @Query("""
+            UPDATE TransferRequest r
+            SET r.status = com.elyashevich.bank.domain.model.TransferRequestStatus.COMPLETED, r.updatedAt = :now
+            WHERE r.id = :id
+              AND r.status = com.elyashevich.bank.domain.model.TransferRequestStatus.PROCESSING
+              AND r.attempts = :attempts
+            """)
+    int markCompleted(@Param("id") UUID id, @Param("attempts") int attempts, @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE TransferRequest r
+            SET r.status = :status, r.failureReason = :failureReason, r.updatedAt = :now
+            WHERE r.id = :id
+              AND r.status = com.elyashevich.bank.domain.model.TransferRequestStatus.PROCESSING
+              AND r.attempts = :attempts
+            """)
+    int markUnsuccessful(
+            @Param("id") UUID id,
+            @Param("attempts") int attempts,
+            @Param("status") TransferRequestStatus status,
+            @Param("failureReason") String failureReason,
+            @Param("now") Instant now
+    );
+
+    @Modifying
+    @Query("""
+            UPDATE TransferRequest r
+            SET r.status = com.elyashevich.bank.domain.model.TransferRequestStatus.PENDING, r.updatedAt = :now
+            WHERE r.status = com.elyashevich.bank.domain.model.TransferRequestStatus.PROCESSING
+              AND r.updatedAt < :threshold
+              AND r.attempts < :maxAttempts
+            """)
+    int releaseStale(@Param("threshold") Instant threshold, @Param("maxAttempts") int maxAttempts, @Param("now") Instant now);
+
+    @Modifying
+    @Query("""
+            UPDATE TransferRequest r
+            SET r.status = com.elyashevich.bank.domain.model.TransferRequestStatus.FAILED,
+                r.failureReason = :failureReason, r.updatedAt = :now
+            WHERE r.status = com.elyashevich.bank.domain.model.TransferRequestStatus.PROCESSING
+              AND r.updatedAt < :threshold
+              AND r.attempts >= :maxAttempts
+            """)
+    int failStale(
+            @Param("threshold") Instant threshold,
+            @Param("maxAttempts") int maxAttempts,
+            @Param("failureReason") String failureReason,
+            @Param("now") Instant now
+    );
+}
@@ -0,0 +1,98 @@
+package com.elyashevich.bank.repository.impl;
+
+import com.elyashevich.bank.domain.model.LockHandle;
+import com.elyashevich.bank.repository.LockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.lock.backend", havingValue = "advisory")
+public class AdvisoryLockRepositoryImpl implements LockRepository {
+
+    private static final String OWNER = "transaction";
+
+    // Keys are locked one by one in the given order within a single statement
+    private static final String LOCK_ALL_QUERY = """
+            SELECT pg_advisory_xact_lock(hashtextextended(t.key, 0))
+            FROM unnest(?::text[]) WITH ORDINALITY AS t(key, position)
+            ORDER BY t.position
+            """;
+
+    // lock_timeout bounds the wait for the advisory locks only: the second parameter restores the previous value
+    // once all of them are held, so the account row locks that follow wait as long as they normally would
+    private static final String LOCK_ALL_WITH_TIMEOUT_QUERY = """
+            SELECT set_config('lock_timeout', ?, true)
+            FROM (SELECT count(*) FROM (%s) locks) locked
+            """.formatted(LOCK_ALL_QUERY);
+
+    // Locks taken before a miss stay held until the rollback that follows a failed acquisition
+    private static final String TRY_LOCK_ALL_QUERY = """
+            SELECT bool_and(pg_try_advisory_xact_lock(hashtextextended(t.key, 0)))
+            FROM unnest(?::text[]) WITH ORDINALITY AS t(key, position)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<LockHandle> lock(String key, long leaseTime, TimeUnit unit) {
+        return tryLock(key, 0, leaseTime, unit);
+    }
+
+    @Override
+    public Optional<LockHandle> tryLock(String key, long waitTime, long leaseTime, TimeUnit unit) {
+        return tryLockAll(List.of(key), waitTime, leaseTime, unit).stream().findFirst();
+    }
+
+    // The lease is the transaction itself: locks are released by PostgreSQL on commit or rollback
+    @Override
+    public List<LockHandle> tryLockAll(List<String> keys, long waitTime, long leaseTime, TimeUnit unit) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Advisory locks can only be taken inside a transaction");
+        }
+
+        var keyArray = keys.toArray(String[]::new);
+        try {
+            if (waitTime <= 0) {
+                var acquired = jdbcTemplate.queryForObject(TRY_LOCK_ALL_QUERY, Boolean.class, (Object) keyArray);
+                return Boolean.TRUE.equals(acquired) ? toLocks(keys) : List.of();
+            }
+
+            var previousTimeout = jdbcTemplate.queryForObject("SELECT current_setting('lock_timeout')", String.class);
+            jdbcTemplate.queryForObject(
+                    "SELECT set_config('lock_timeout', ?, true)", String.class, unit.toMillis(waitTime) + "ms"
+            );
+            jdbcTemplate.queryForObject(LOCK_ALL_WITH_TIMEOUT_QUERY, String.class, previousTimeout, keyArray);
+            return toLocks(keys);
+        } catch (PessimisticLockingFailureException e) {
+            log.debug("Could not acquire advisory locks {}: {}", keys, e.getMessage());
+            return List.of();
+        }
+    }
+
+    @Override
+    public void unlock(LockHandle lock) {
+        // Released automatically when the transaction ends
+    }
+
+    @Override
+    public void unlockAll(List<LockHandle> locks) {
+        // Released automatically when the transaction ends
+    }
+
+    private List<LockHandle> toLocks(List<String> keys) {
+        return keys.stream()
+                .map(key -> new LockHandle(key, OWNER))
+                .toList();
+    }
+}
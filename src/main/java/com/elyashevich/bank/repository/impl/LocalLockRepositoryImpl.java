@@ -0,0 +1,53 @@
+package com.elyashevich.bank.repository.impl;
+
+import com.elyashevich.bank.domain.model.LockHandle;
+import com.elyashevich.bank.repository.LockRepository;
+import com.elyashevich.bank.service.impl.StripedLockService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Only safe when a single application node serves transfers. Locks are bound to the acquiring thread
+@Repository
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.lock.backend", havingValue = "local")
+public class LocalLockRepositoryImpl implements LockRepository {
+
+    private final StripedLockService stripedLockService;
+
+    @Override
+    public Optional<LockHandle> lock(String key, long leaseTime, TimeUnit unit) {
+        return tryLock(key, 0, leaseTime, unit);
+    }
+
+    @Override
+    public Optional<LockHandle> tryLock(String key, long waitTime, long leaseTime, TimeUnit unit) {
+        return tryLockAll(List.of(key), waitTime, leaseTime, unit).stream().findFirst();
+    }
+
+    @Override
+    public List<LockHandle> tryLockAll(List<String> keys, long waitTime, long leaseTime, TimeUnit unit) {
+        if (!stripedLockService.lock(keys, waitTime, unit)) {
+            return List.of();
+        }
+
+        var owner = String.valueOf(Thread.currentThread().threadId());
+        return keys.stream()
+                .map(key -> new LockHandle(key, owner))
+                .toList();
+    }
+
+    @Override
+    public void unlock(LockHandle lock) {
+        unlockAll(List.of(lock));
+    }
+
+    @Override
+    public void unlockAll(List<LockHandle> locks) {
+        stripedLockService.unlock(locks.stream().map(LockHandle::key).toList());
+    }
+}
@@ -1,28 +1,265 @@
 package com.elyashevich.bank.repository.impl;
 
-import com.elyashevich.bank.repository.RedisLockRepository;
+import com.elyashevich.bank.domain.model.LockHandle;
+import com.elyashevich.bank.repository.LockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+@Slf4j
 @Repository
 @RequiredArgsConstructor
-public class RedisLockRepositoryImpl implements RedisLockRepository {
+@ConditionalOnProperty(name = "application.lock.backend", havingValue = "redis", matchIfMissing = true)
+public class RedisLockRepositoryImpl implements LockRepository, MessageListener {
+
+    private static final String RELEASE_CHANNEL = "lock-release";
+
+    // Either every key is taken and {count} is returned, or nothing is written
+    // and {-index, pttl} of the first held key is returned
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            for i = 1, #KEYS do
+                if redis.call('exists', KEYS[i]) == 1 then
+                    return {-i, redis.call('pttl', KEYS[i])}
+                end
+            end
+            for i = 1, #KEYS do
+                redis.call('set', KEYS[i], ARGV[1], 'PX', ARGV[2])
+            end
+            return {#KEYS}
+            """, List.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            local released = 0
+            for i = 1, #KEYS do
+                if redis.call('get', KEYS[i]) == ARGV[1] then
+                    redis.call('del', KEYS[i])
+                    redis.call('publish', ARGV[2], KEYS[i])
+                    released = released + 1
+                end
+            end
+            return released
+            """, Long.class);
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('pexpire', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
 
     private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final Map<String, WaitQueue> waitQueues = new ConcurrentHashMap<>();
+    private final Map<LockHandle, ScheduledFuture<?>> renewals = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("redis-lock-watchdog").daemon().factory()
+    );
+
+    @Value("${application.lock.watchdog.enabled:false}")
+    private boolean watchdogEnabled;
+
+    @Value("${application.lock.max-waiters:64}")
+    private int maxWaiters = 64;
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(RELEASE_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
 
     @Override
-    public boolean lock(String key, long timeout, TimeUnit unit) {
-        var acquired = redisTemplate.opsForValue()
-                .setIfAbsent(key, "locked", timeout, unit);
+    public Optional<LockHandle> lock(String key, long leaseTime, TimeUnit unit) {
+        return tryLock(key, 0, leaseTime, unit);
+    }
 
-        return acquired != null && acquired;
+    @Override
+    public Optional<LockHandle> tryLock(String key, long waitTime, long leaseTime, TimeUnit unit) {
+        return tryLockAll(List.of(key), waitTime, leaseTime, unit).stream().findFirst();
     }
 
     @Override
-    public void unlock(String key) {
-        redisTemplate.delete(key);
+    public List<LockHandle> tryLockAll(List<String> keys, long waitTime, long leaseTime, TimeUnit unit) {
+        var owner = UUID.randomUUID().toString();
+        var leaseMillis = unit.toMillis(leaseTime);
+        var deadline = System.nanoTime() + unit.toNanos(waitTime);
+
+        var attempt = acquire(keys, owner, leaseMillis);
+        if (attempt.acquired() || waitTime <= 0) {
+            return toLocks(keys, owner, leaseMillis, attempt);
+        }
+
+        // Queues are joined before the next attempt, so a release published in between is not missed
+        var joined = new ArrayList<String>();
+        try {
+            for (var key : keys) {
+                if (!joinWaitQueue(key)) {
+                    log.debug("Wait queue for lock '{}' is full", key);
+                    return List.of();
+                }
+                joined.add(key);
+            }
+
+            attempt = acquire(keys, owner, leaseMillis);
+            while (!attempt.acquired()) {
+                var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return List.of();
+                }
+
+                // Parked until a release is published, or at most until the holder's lease runs out
+                var parkNanos = attempt.holderLease() > 0
+                        ? Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(attempt.holderLease()))
+                        : remaining;
+                waitQueues.get(keys.get(attempt.conflictIndex())).signal.tryAcquire(parkNanos, TimeUnit.NANOSECONDS);
+
+                attempt = acquire(keys, owner, leaseMillis);
+            }
+            return toLocks(keys, owner, leaseMillis, attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } finally {
+            joined.forEach(this::leaveWaitQueue);
+        }
+    }
+
+    @Override
+    public void unlock(LockHandle lock) {
+        unlockAll(List.of(lock));
+    }
+
+    @Override
+    public void unlockAll(List<LockHandle> locks) {
+        if (locks.isEmpty()) {
+            return;
+        }
+
+        locks.forEach(this::cancelRenewal);
+
+        var owner = locks.getFirst().owner();
+        var keys = locks.stream().map(LockHandle::key).toList();
+        var released = redisTemplate.execute(RELEASE_SCRIPT, keys, owner, RELEASE_CHANNEL);
+        if (released == null || released < keys.size()) {
+            log.warn("Locks {} expired before release", keys);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        var key = new String(message.getBody(), StandardCharsets.UTF_8);
+        var queue = waitQueues.get(key);
+        if (queue != null) {
+            queue.signal.release();
+        }
+    }
+
+    private AcquireAttempt acquire(List<String> keys, String owner, long leaseMillis) {
+        var result = redisTemplate.execute(ACQUIRE_SCRIPT, keys, owner, String.valueOf(leaseMillis));
+        if (result == null || result.isEmpty()) {
+            return new AcquireAttempt(false, 0, -1);
+        }
+
+        var first = (Long) result.getFirst();
+        if (first < 0) {
+            return new AcquireAttempt(false, (int) (-first - 1), (Long) result.get(1));
+        }
+        return new AcquireAttempt(true, -1, 0);
+    }
+
+    private List<LockHandle> toLocks(List<String> keys, String owner, long leaseMillis, AcquireAttempt attempt) {
+        if (!attempt.acquired()) {
+            return List.of();
+        }
+
+        var locks = new ArrayList<LockHandle>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            var lock = new LockHandle(keys.get(i), owner);
+            if (watchdogEnabled) {
+                scheduleRenewal(lock, leaseMillis);
+            }
+            locks.add(lock);
+        }
+        return locks;
+    }
+
+    private boolean joinWaitQueue(String key) {
+        var admitted = new AtomicBoolean();
+        waitQueues.compute(key, (k, current) -> {
+            var queue = current == null ? new WaitQueue() : current;
+            if (queue.waiters < maxWaiters) {
+                queue.waiters++;
+                admitted.set(true);
+            }
+            return queue.waiters == 0 ? null : queue;
+        });
+        return admitted.get();
+    }
+
+    private void leaveWaitQueue(String key) {
+        waitQueues.computeIfPresent(key, (k, queue) -> --queue.waiters == 0 ? null : queue);
+    }
+
+    private void scheduleRenewal(LockHandle lock, long leaseMillis) {
+        var period = Math.max(leaseMillis / 3, 1);
+        var renewal = watchdog.scheduleAtFixedRate(() -> renew(lock, leaseMillis), period, period, TimeUnit.MILLISECONDS);
+        renewals.put(lock, renewal);
+    }
+
+    private void cancelRenewal(LockHandle lock) {
+        var renewal = renewals.remove(lock);
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+    }
+
+    private void renew(LockHandle lock, long leaseMillis) {
+        try {
+            var renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(lock.key()), lock.owner(), String.valueOf(leaseMillis));
+            if (renewed == null || renewed == 0) {
+                cancelRenewal(lock);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not renew lock '{}': {}", lock.key(), e.getMessage());
+        }
+    }
+
+    private record AcquireAttempt(boolean acquired, int conflictIndex, long holderLease) {
+    }
+
+    // Waiters are only mutated inside ConcurrentHashMap.compute, the fair semaphore wakes them in FIFO order
+    private static final class WaitQueue {
+        private final Semaphore signal = new Semaphore(0, true);
+        private int waiters;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,11 @@
+package com.elyashevich.bank.service;
+
+public interface IdempotencyService {
+
+    /**
+     * Runs the action once per user and idempotency key.
+     *
+     * @return {@code true} if the action ran now, {@code false} if a completed run with the same key was replayed
+     */
+    boolean executeOnce(Long userId, String idempotencyKey, String fingerprint, Runnable action);
+}
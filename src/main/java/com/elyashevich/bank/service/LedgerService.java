@@ -0,0 +1,28 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.model.TransferCommand;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public interface LedgerService {
+
+    void record(List<TransferCommand> transfers, boolean applied);
+
+    Map<Long, BigDecimal> findAvailableBalances(Collection<Long> userIds);
+
+    void rollForward();
+
+    /**
+     * Records an applied debit and a pending credit, so the credit survives a crash until it is claimed
+     * by {@link #claimCredit}, or folded in by {@link #rollForward} once the claim timeout has passed.
+     */
+    UUID recordHandOff(TransferCommand transfer);
+
+    boolean claimCredit(UUID transferId);
+
+    boolean cancelHandOff(UUID transferId, Long fromUserId, BigDecimal amount);
+}
@@ -0,0 +1,12 @@
+package com.elyashevich.bank.service;
+
+public interface RateLimitService {
+
+    /**
+     * Takes permits from the token bucket of the user. A request for more permits than the bucket can hold
+     * is always rejected, so a large batch can not pass the configured rate.
+     *
+     * @return {@code false} if the bucket does not hold enough tokens, nothing is taken then
+     */
+    boolean tryAcquire(Long userId, int permits);
+}
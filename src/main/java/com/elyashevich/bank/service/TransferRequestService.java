@@ -0,0 +1,13 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.entity.TransferRequest;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface TransferRequestService {
+
+    TransferRequest submit(Long fromUserId, Long toUserId, BigDecimal amount);
+
+    TransferRequest findById(UUID id, Long fromUserId);
+}
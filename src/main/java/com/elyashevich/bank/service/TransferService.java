@@ -1,8 +1,13 @@
 package com.elyashevich.bank.service;
 
+import com.elyashevich.bank.domain.model.TransferCommand;
+
 import java.math.BigDecimal;
+import java.util.List;
 
 public interface TransferService {
 
     void transfer(Long fromUserId, Long toUserId, BigDecimal amount);
+
+    void transferBatch(List<TransferCommand> transfers);
 }
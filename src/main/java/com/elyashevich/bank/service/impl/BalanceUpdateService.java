@@ -1,36 +1,345 @@
 package com.elyashevich.bank.service.impl;
 
-import com.elyashevich.bank.domain.entity.Account;
+import com.elyashevich.bank.domain.model.BalanceColumns;
+import com.elyashevich.bank.domain.model.InterestMode;
+import com.elyashevich.bank.domain.model.Money;
 import com.elyashevich.bank.repository.AccountRepository;
-import jakarta.transaction.Transactional;
+import com.elyashevich.bank.repository.JobCheckpointRepository;
+import com.elyashevich.bank.repository.LockRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class BalanceUpdateService {
 
+    private static final long INTEREST_PERCENT = 110;
+    private static final long MAX_BALANCE_PERCENT = 207;
+    private static final int DEFAULT_CHUNK_SIZE = 10000;
+    private static final String JOB_NAME = "interest-accrual";
+    private static final String PARTITION_LOCK_KEY_PREFIX = "interest_partition:";
+    private static final long ACCRUAL_PERIOD = InterestAccrual.ACCRUAL_PERIOD;
+
+    private static final String UPDATE_BALANCE_SQL = "UPDATE ACCOUNT SET BALANCE = ?, LAST_ACCRUED_AT = CURRENT_TIMESTAMP, VERSION = VERSION + 1 WHERE ID = ?";
+    // Keyset chunk: stable under concurrent inserts and as cheap at the end of the table as at its start.
+    // BALANCE has scale 2, so it is read as whole kopecks without a BigDecimal per row
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT ID, CAST(BALANCE * 100 AS BIGINT) FROM ACCOUNT WHERE ID > ? ORDER BY ID LIMIT ? FOR UPDATE";
+
     private final AccountRepository accountRepository;
+    private final JobCheckpointRepository jobCheckpointRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LockRepository lockRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.interest.mode:set}")
+    private InterestMode interestMode = InterestMode.SET;
+
+    @Value("${application.interest.chunk-size:10000}")
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    @Value("${application.interest.partitions:16}")
+    private int partitions = 16;
 
-    @Transactional
-    @Scheduled(fixedRate = 30000)
+    @Value("${application.interest.partition-lease:25000}")
+    private long partitionLease = 25000;
+
+    @Value("${application.interest.skip-locked:true}")
+    private boolean skipLocked = true;
+
+    @Scheduled(fixedRate = ACCRUAL_PERIOD)
     public void increaseBalances() {
+        if (interestMode != InterestMode.LAZY) {
+            foldBuckets();
+        }
+        switch (interestMode) {
+            case ENTITY -> transactionTemplate.executeWithoutResult(status -> increaseLoadedBalances());
+            case SET -> increaseBalancesInRanges();
+            case STREAMING -> increaseBalancesInChunks();
+            case PARTITIONED -> increaseBalancesInPartitions();
+            // balances are compounded when transfers touch them, see InterestAccrual
+            case LAZY -> { }
+        }
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void purgePartitionRuns() {
+        if (interestMode != InterestMode.PARTITIONED) {
+            return;
+        }
+        var removed = transactionTemplate.execute(status ->
+                jobCheckpointRepository.deletePartitionRunsBefore(Instant.now().minus(1, ChronoUnit.DAYS)));
+        log.debug("Removed {} interest partition runs", removed);
+    }
+
+    // Credits of hot accounts sit in ACCOUNT_BUCKET, while every sweep accrues ACCOUNT.BALANCE only, so they are
+    // folded in first. Each account has its own transaction, so the job never holds one while waiting for another
+    private void foldBuckets() {
+        for (var accountId : accountRepository.findBucketedAccountIds()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (accountRepository.lockById(accountId).isPresent()) {
+                    accountRepository.foldBuckets(accountId);
+                }
+            });
+        }
+    }
+
+    private void increaseLoadedBalances() {
         var accounts = accountRepository.findAll();
+        var now = Instant.now();
+        accounts.forEach(account -> {
+            var balance = accrue(account.getBalance());
+            if (!balance.equals(account.getBalance())) {
+                account.setBalance(balance);
+                account.setLastAccruedAt(now);
+            }
+        });
+        accountRepository.saveAll(accounts);
+    }
 
-        for (Account account : accounts) {
-            var currentBalance = account.getBalance();
-            var initialBalance = account.getBalance();
-            var maxBalance = initialBalance.multiply(BigDecimal.valueOf(2.07));
-            var newBalance = currentBalance.multiply(BigDecimal.valueOf(1.10));
+    // Each id range is one UPDATE committed on its own, so no account is loaded into memory
+    // and rows stay locked against transfers for a single chunk only
+    private void increaseBalancesInRanges() {
+        var minId = accountRepository.findMinId();
+        var maxId = accountRepository.findMaxId();
+        if (minId == null || maxId == null) {
+            return;
+        }
 
-            if (newBalance.compareTo(maxBalance) < 0) {
-                account.setBalance(newBalance);
+        var step = chunkSize > 0 ? chunkSize : maxId - minId + 1;
+        var updated = 0L;
+        var skipped = new ArrayList<Long>();
+        for (var fromId = minId; fromId <= maxId; fromId += step) {
+            var rangeFrom = fromId;
+            var rangeTo = Math.min(fromId + step - 1, maxId);
+            if (skipLocked) {
+                skipped.addAll(transactionTemplate.execute(status -> accountRepository.accrueInterestSkipLocked(rangeFrom, rangeTo)));
+            } else {
+                updated += transactionTemplate.execute(status -> accountRepository.accrueInterest(rangeFrom, rangeTo));
             }
         }
 
-        accountRepository.saveAll(accounts);
+        if (skipLocked) {
+            retrySkipped(skipped);
+            log.info("Interest accrued on accounts {} to {}, {} of them retried after transfers", minId, maxId, skipped.size());
+        } else {
+            log.info("Interest accrued on {} accounts", updated);
+        }
+    }
+
+    // Rows that transfers held during the sweep get one more pass that skips locked rows, and only the few
+    // still locked after it are waited for, so the job yields to transfers but every account still accrues
+    private void retrySkipped(List<Long> ids) {
+        for (var from = 0; from < ids.size(); from += DEFAULT_CHUNK_SIZE) {
+            var chunk = ids.subList(from, Math.min(from + DEFAULT_CHUNK_SIZE, ids.size()));
+            var stillLocked = transactionTemplate.execute(status -> accountRepository.accrueInterestSkipLocked(chunk));
+            if (!stillLocked.isEmpty()) {
+                log.debug("Waiting for {} accounts locked by transfers to accrue interest", stillLocked.size());
+                transactionTemplate.execute(status -> accountRepository.accrueInterest(stillLocked));
+            }
+        }
+    }
+
+    // Every chunk commits together with the checkpoint that follows it, so a run interrupted at any point
+    // resumes after the last committed chunk and no account is credited twice within a run
+    private void increaseBalancesInChunks() {
+        transactionTemplate.executeWithoutResult(status -> startOrResumeRun());
+
+        var columns = new BalanceColumns(chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE);
+        var updated = 0L;
+        Integer chunkUpdated;
+        while ((chunkUpdated = transactionTemplate.execute(status -> accrueNextChunk(columns))) != null) {
+            updated += chunkUpdated;
+        }
+
+        log.info("Interest accrued on {} accounts", updated);
+    }
+
+    private void startOrResumeRun() {
+        jobCheckpointRepository.createIfAbsent(JOB_NAME);
+        var checkpoint = jobCheckpointRepository.findByJobNameWithPessimisticLock(JOB_NAME).orElseThrow();
+
+        if (checkpoint.getLastId() != null) {
+            log.info("Resuming interest accrual started at {} after account {}", checkpoint.getStartedAt(), checkpoint.getLastId());
+            return;
+        }
+        checkpoint.setLastId(0L);
+        checkpoint.setStartedAt(Instant.now());
+        checkpoint.setCompletedAt(null);
+    }
+
+    // Returns the number of accounts credited, or null once the run is complete. Balances are read straight
+    // into the primitive columns, and only rows whose balance changed are written back, as one JDBC batch
+    private Integer accrueNextChunk(BalanceColumns columns) {
+        var checkpoint = jobCheckpointRepository.findByJobNameWithPessimisticLock(JOB_NAME).orElseThrow();
+        if (checkpoint.getLastId() == null) {
+            return null;
+        }
+
+        columns.clear();
+        jdbcTemplate.query(SELECT_CHUNK_SQL, (RowCallbackHandler) resultSet ->
+                        columns.add(resultSet.getLong(1), resultSet.getLong(2)),
+                checkpoint.getLastId(), columns.capacity());
+        if (columns.isEmpty()) {
+            checkpoint.setLastId(null);
+            checkpoint.setCompletedAt(Instant.now());
+            return null;
+        }
+
+        var changed = columns.accrue();
+        if (changed > 0) {
+            jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int index) throws SQLException {
+                    statement.setBigDecimal(1, columns.changedBalance(index).toBigDecimal());
+                    statement.setLong(2, columns.changedId(index));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return changed;
+                }
+            });
+        }
+
+        checkpoint.setLastId(columns.lastId());
+        return changed;
+    }
+
+    // Every node of the cluster fires once per tick and works through the partitions no other node holds,
+    // starting at a random one so nodes spread out. The JOB_PARTITION_RUN row committed with each block's updates
+    // makes every block run once per tick even if a lease expires or two nodes disagree on the holder
+    private void increaseBalancesInPartitions() {
+        var tick = jobCheckpointRepository.currentTimeMillis() / ACCRUAL_PERIOD;
+        var maxId = accountRepository.findMaxId();
+        if (maxId == null) {
+            return;
+        }
+
+        var start = ThreadLocalRandom.current().nextInt(partitions);
+        var processed = 0;
+        for (var i = 0; i < partitions; i++) {
+            if (accruePartition(tick, (start + i) % partitions, maxId)) {
+                processed++;
+            }
+        }
+
+        // after the blocks have committed, so waiting for rows held by transfers holds no other row
+        retrySkippedAccounts();
+        log.info("Interest accrued on {} of {} partitions for tick {}", processed, partitions, tick);
+    }
+
+    // A partition is every partitions-th block of chunkSize ids, so it is walked with index range scans
+    // and stays the same on every node whatever the number of accounts. Each block commits on its own, so rows
+    // stay locked against transfers for one block only, and a partition left half done is finished by the next
+    // holder without crediting a block twice
+    private boolean accruePartition(long tick, int partition, long maxId) {
+        var blockSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+        var accrued = false;
+        for (var block = (long) partition; block * blockSize <= maxId; block += partitions) {
+            var blockId = Math.toIntExact(block);
+            var fromId = block * blockSize;
+            var run = transactionTemplate.execute(status -> accrueBlock(tick, partition, blockId, fromId, fromId + blockSize - 1));
+            if (!run.leased()) {
+                break;
+            }
+            accrued |= run.accrued();
+        }
+        return accrued;
+    }
+
+    // The lease is taken per block, since an advisory lease ends with the transaction
+    private BlockRun accrueBlock(long tick, int partition, int block, long fromId, long toId) {
+        var lease = lockRepository.lock(PARTITION_LOCK_KEY_PREFIX + partition, partitionLease, TimeUnit.MILLISECONDS);
+        if (lease.isEmpty()) {
+            return new BlockRun(false, false);
+        }
+
+        try {
+            if (jobCheckpointRepository.markBlockRun(JOB_NAME, tick, block) == 0) {
+                return new BlockRun(true, false);
+            }
+            if (skipLocked) {
+                var skipped = accountRepository.accrueInterestSkipLocked(fromId, toId);
+                if (!skipped.isEmpty()) {
+                    jobCheckpointRepository.addSkippedAccounts(JOB_NAME, tick, skipped);
+                }
+            } else {
+                accountRepository.accrueInterest(fromId, toId);
+            }
+            return new BlockRun(true, true);
+        } finally {
+            lockRepository.unlock(lease.get());
+        }
+    }
+
+    // Works off JOB_SKIPPED_ACCOUNT oldest tick first, including accounts left by a node that stopped before its
+    // retry. Each account accrues in the transaction that removes it, so it is credited exactly once per skipped tick
+    private void retrySkippedAccounts() {
+        Long tick;
+        while ((tick = jobCheckpointRepository.findOldestSkippedTick(JOB_NAME)) != null) {
+            var skippedTick = tick;
+            var stillLocked = transactionTemplate.execute(status -> accrueSkippedChunk(skippedTick));
+            if (stillLocked == null) {
+                // the rest of this tick is being retried by another node
+                break;
+            }
+            if (!stillLocked.isEmpty()) {
+                log.debug("Waiting for {} accounts locked by transfers to accrue interest", stillLocked.size());
+                transactionTemplate.executeWithoutResult(status -> accrueSkippedWaiting(skippedTick, stillLocked));
+            }
+        }
+    }
+
+    // Returns the accounts still held by transfers, or null when no skipped account of the tick is free to retry
+    private List<Long> accrueSkippedChunk(long tick) {
+        var ids = jobCheckpointRepository.lockSkippedAccounts(JOB_NAME, tick, DEFAULT_CHUNK_SIZE);
+        if (ids.isEmpty()) {
+            return null;
+        }
+
+        var stillLocked = accountRepository.accrueInterestSkipLocked(ids);
+        var accrued = new ArrayList<>(ids);
+        accrued.removeAll(new HashSet<>(stillLocked));
+        if (!accrued.isEmpty()) {
+            jobCheckpointRepository.deleteSkippedAccounts(JOB_NAME, tick, accrued);
+        }
+        return stillLocked;
+    }
+
+    private void accrueSkippedWaiting(long tick, List<Long> ids) {
+        var pending = jobCheckpointRepository.lockSkippedAccounts(JOB_NAME, tick, ids);
+        if (pending.isEmpty()) {
+            return;
+        }
+        accountRepository.accrueInterest(pending);
+        jobCheckpointRepository.deleteSkippedAccounts(JOB_NAME, tick, pending);
+    }
+
+    // 10% interest, skipped where it would reach 207% of the balance
+    private static Money accrue(Money balance) {
+        var newBalance = balance.multiply(INTEREST_PERCENT, 100);
+        return newBalance.compareToRatio(balance, MAX_BALANCE_PERCENT, 100) < 0 ? newBalance : balance;
+    }
+
+    private record BlockRun(boolean leased, boolean accrued) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,169 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.domain.model.TransferCommand;
+import com.elyashevich.bank.exception.TransferQueueFullException;
+import com.elyashevich.bank.service.TransferService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects single transfers for up to {@code window} or {@code max-size} items and applies them as one batch,
+ * so the whole group shares a single commit. If the group fails, its transfers are retried one by one
+ * and every caller gets its own outcome. A caller that already runs a transaction, such as an idempotent
+ * request or the asynchronous worker, bypasses the queue so its own writes commit together with the transfer.
+ */
+@Slf4j
+@Primary
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.transfer.engine", havingValue = "group-commit")
+public class GroupCommitTransferServiceImpl implements TransferService {
+
+    private final TransferServiceImpl transferServiceImpl;
+
+    @Value("${application.transfer.group-commit.window:2ms}")
+    private Duration window = Duration.ofMillis(2);
+
+    @Value("${application.transfer.group-commit.max-size:256}")
+    private int maxSize = 256;
+
+    @Value("${application.transfer.group-commit.queue-capacity:10000}")
+    private int queueCapacity = 10000;
+
+    private BlockingQueue<PendingTransfer> queue;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        dispatcher = Thread.ofPlatform().name("transfer-group-commit").start(this::dispatch);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join();
+
+        PendingTransfer pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new TransferQueueFullException("Transfer service is shutting down"));
+        }
+    }
+
+    @Override
+    public void transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
+        // The group commits in the dispatcher's transaction, which the caller's writes could not join
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            transferServiceImpl.transfer(fromUserId, toUserId, amount);
+            return;
+        }
+
+        var pending = new PendingTransfer(new TransferCommand(fromUserId, toUserId, amount), new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            var message = "Transfer queue is full, retry later";
+            log.warn(message);
+            throw new TransferQueueFullException(message);
+        }
+
+        try {
+            pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        log.info("Transfer completed: {} RUB from user {} to user {}", amount, fromUserId, toUserId);
+    }
+
+    @Override
+    public void transferBatch(List<TransferCommand> transfers) {
+        transferServiceImpl.transferBatch(transfers);
+    }
+
+    private void dispatch() {
+        var group = new ArrayList<PendingTransfer>(maxSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException e) {
+                // stop() was called, the transfers already queued are still committed
+                running = false;
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void collect(List<PendingTransfer> group) throws InterruptedException {
+        var first = running ? queue.poll(100, TimeUnit.MILLISECONDS) : queue.poll();
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+
+        var deadline = System.nanoTime() + window.toNanos();
+        while (group.size() < maxSize) {
+            queue.drainTo(group, maxSize - group.size());
+            var remaining = deadline - System.nanoTime();
+            if (group.size() >= maxSize || remaining <= 0 || !running) {
+                return;
+            }
+            var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    private void commit(List<PendingTransfer> group) {
+        try {
+            transferServiceImpl.transferBatch(group.stream().map(PendingTransfer::transfer).toList());
+            group.forEach(pending -> pending.result().complete(null));
+            return;
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                group.getFirst().result().completeExceptionally(e);
+                return;
+            }
+            log.debug("Group of {} transfers failed, applying them one by one: {}", group.size(), e.getMessage());
+        }
+
+        for (var pending : group) {
+            var transfer = pending.transfer();
+            try {
+                transferServiceImpl.transfer(transfer.fromUserId(), transfer.toUserId(), transfer.amount());
+                pending.result().complete(null);
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private record PendingTransfer(TransferCommand transfer, CompletableFuture<Void> result) {
+    }
+}
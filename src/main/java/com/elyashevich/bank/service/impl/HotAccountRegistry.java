@@ -0,0 +1,71 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.repository.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HotAccountRegistry {
+
+    private final AccountRepository accountRepository;
+    private final Set<Long> splitUserIds = ConcurrentHashMap.newKeySet();
+
+    @Value("${application.account.hot.user-ids:}")
+    private Set<Long> hotUserIds = Set.of();
+
+    @Value("${application.account.hot.buckets:16}")
+    private int bucketCount = 16;
+
+    // Only accounts whose buckets are committed count as hot: crediting an account without buckets under
+    // the shared lock would have to upgrade it, and two such credits would deadlock
+    public boolean isHot(Long userId) {
+        return splitUserIds.contains(userId);
+    }
+
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void splitHotAccounts() {
+        hotUserIds.forEach(this::split);
+    }
+
+    // Accounts of hot users created after startup are split together with their creation
+    @Transactional
+    public void splitIfHot(Long userId) {
+        if (hotUserIds.contains(userId)) {
+            split(userId);
+        }
+    }
+
+    private void split(Long userId) {
+        accountRepository.createBuckets(userId, bucketCount);
+        if (accountRepository.updateBucketCount(userId, bucketCount) > 0) {
+            log.info("Account of user {} split into {} balance buckets", userId, bucketCount);
+        }
+        if (accountRepository.findBucketCountByUserId(userId).orElse(0) == 0) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            splitUserIds.add(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                splitUserIds.add(userId);
+            }
+        });
+    }
+}
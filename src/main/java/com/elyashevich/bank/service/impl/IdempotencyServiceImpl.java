@@ -0,0 +1,139 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.domain.model.IdempotencyStatus;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.IdempotencyKeyConflictException;
+import com.elyashevich.bank.repository.IdempotencyRecordRepository;
+import com.elyashevich.bank.service.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final String SEPARATOR = "|";
+    private static final int MAX_INSERT_ATTEMPTS = 3;
+
+    private final StringRedisTemplate redisTemplate;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.idempotency.ttl:86400000}")
+    private long ttl = 86400000;
+
+    @Override
+    public boolean executeOnce(
+            final Long userId,
+            final String idempotencyKey,
+            final String fingerprint,
+            final Runnable action
+    ) {
+        var keyHash = sha256(idempotencyKey);
+        var requestHash = sha256(fingerprint);
+
+        var cached = this.findInCache(userId, keyHash);
+        if (cached != null) {
+            return this.replay(cached, requestHash);
+        }
+
+        // The record commits or rolls back together with the action
+        var storedRequestHash = this.transactionTemplate.execute(status -> this.runOnce(userId, keyHash, requestHash, action));
+        if (storedRequestHash != null) {
+            this.cache(userId, keyHash, storedRequestHash);
+            return this.replay(storedRequestHash, requestHash);
+        }
+
+        this.cache(userId, keyHash, requestHash);
+        return true;
+    }
+
+    @Scheduled(fixedRate = 3600000)
+    public void purgeExpired() {
+        var removed = this.idempotencyRecordRepository.deleteAllCreatedBefore(Instant.now().minusMillis(this.ttl));
+        if (removed > 0) {
+            log.info("Removed {} expired idempotency records", removed);
+        }
+    }
+
+    // Returns the request hash stored by an earlier run with the same key, or null once this run has executed the action
+    private String runOnce(final Long userId, final String keyHash, final String requestHash, final Runnable action) {
+        for (var attempt = 1; attempt <= MAX_INSERT_ATTEMPTS; attempt++) {
+            var inserted = this.idempotencyRecordRepository.insertIfAbsent(
+                    userId, keyHash, requestHash, IdempotencyStatus.COMPLETED.name(), Instant.now());
+            if (inserted > 0) {
+                action.run();
+                return null;
+            }
+
+            var existing = this.idempotencyRecordRepository.findByUserIdAndKeyHash(userId, keyHash);
+            if (existing.isPresent()) {
+                return existing.get().getRequestHash();
+            }
+            // the record expired and was purged between the insert and the lookup
+        }
+
+        var message = "Could not store idempotency key";
+        log.warn(message);
+        throw new BusinessException(message);
+    }
+
+    // Redis only caches completed requests, the IDEMPOTENCY_KEY table is what decides
+    private String findInCache(final Long userId, final String keyHash) {
+        try {
+            var value = this.redisTemplate.opsForValue().get(redisKey(userId, keyHash));
+            return value == null ? null : value.substring(value.indexOf(SEPARATOR) + 1);
+        } catch (DataAccessException exception) {
+            log.warn("Redis is unavailable for idempotency keys, checking database only: {}", exception.getMessage());
+            return null;
+        }
+    }
+
+    private void cache(final Long userId, final String keyHash, final String requestHash) {
+        try {
+            this.redisTemplate.opsForValue()
+                    .set(redisKey(userId, keyHash), IdempotencyStatus.COMPLETED.name() + SEPARATOR + requestHash, this.ttl, TimeUnit.MILLISECONDS);
+        } catch (DataAccessException exception) {
+            log.warn("Could not cache idempotency outcome in Redis: {}", exception.getMessage());
+        }
+    }
+
+    private boolean replay(final String storedRequestHash, final String requestHash) {
+        if (!storedRequestHash.equals(requestHash)) {
+            var message = "Idempotency key was already used for a different request";
+            log.warn(message);
+            throw new IdempotencyKeyConflictException(message);
+        }
+        log.info("Replaying completed request for idempotency key");
+        return false;
+    }
+
+    private static String redisKey(final Long userId, final String keyHash) {
+        return KEY_PREFIX + userId + ":" + keyHash;
+    }
+
+    private static String sha256(final String value) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new BusinessException("SHA-256 is not available", exception);
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.domain.entity.Account;
+import com.elyashevich.bank.domain.model.InterestMode;
+import com.elyashevich.bank.domain.model.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Lazy interest: instead of a sweep rewriting every account each period, the balance of an account
+ * is compounded in closed form for the periods elapsed since {@code LAST_ACCRUED_AT}, and written
+ * back only when a transfer touches the account anyway.
+ */
+@Component
+public class InterestAccrual {
+
+    static final long ACCRUAL_PERIOD = 30000;
+
+    private static final long INTEREST_PERCENT = 110;
+    private static final long MAX_BALANCE_PERCENT = 207;
+    private static final BigInteger GROWTH_NUMERATOR = BigInteger.valueOf(INTEREST_PERCENT);
+    private static final BigInteger GROWTH_DENOMINATOR = BigInteger.valueOf(100);
+
+    @Value("${application.interest.mode:set}")
+    private InterestMode interestMode = InterestMode.SET;
+
+    public boolean isLazy() {
+        return interestMode == InterestMode.LAZY;
+    }
+
+    /**
+     * Folds the interest accrued so far into the balance. Only call it on an account locked for update,
+     * the caller persists the change.
+     */
+    public void settle(Account account) {
+        if (!isLazy()) {
+            return;
+        }
+        var periods = elapsedPeriods(account, Instant.now());
+        if (periods > 0) {
+            account.setBalance(accrue(account.getBalance(), account.getInitialDeposit(), periods));
+            // the unfinished period keeps counting from where it started
+            account.setLastAccruedAt(account.getLastAccruedAt().plusMillis(periods * ACCRUAL_PERIOD));
+        }
+    }
+
+    /**
+     * Shows the accrued interest in {@link Account#getTotalBalance()} without changing the persistent state,
+     * for accounts that are read but not locked.
+     */
+    public void preview(Account account) {
+        if (account == null || !isLazy()) {
+            return;
+        }
+        account.setUnsettledInterest(effectiveBalance(account).minus(account.getBalance()));
+    }
+
+    public Money effectiveBalance(Account account) {
+        if (!isLazy()) {
+            return account.getBalance();
+        }
+        return accrue(account.getBalance(), account.getInitialDeposit(), elapsedPeriods(account, Instant.now()));
+    }
+
+    /**
+     * Grows the balance by 10% per period, but no further than the last step that stays below
+     * 207% of the initial deposit, the same rule the sweep applies once per period.
+     */
+    public static Money accrue(Money balance, Money initialDeposit, long periods) {
+        if (periods <= 0 || balance.signum() <= 0) {
+            return balance;
+        }
+        var steps = Math.min(periods, maxSteps(balance, initialDeposit));
+        return steps == 0 ? balance : grow(balance, (int) steps);
+    }
+
+    private static long elapsedPeriods(Account account, Instant now) {
+        if (account.getLastAccruedAt() == null) {
+            return 0;
+        }
+        return Math.max(0, Duration.between(account.getLastAccruedAt(), now).toMillis() / ACCRUAL_PERIOD);
+    }
+
+    // Estimated with logarithms, then corrected with exact comparisons of the rounded results
+    private static long maxSteps(Money balance, Money initialDeposit) {
+        var ratio = (double) initialDeposit.minorUnits() * MAX_BALANCE_PERCENT / (balance.minorUnits() * 100.0);
+        var steps = Math.max(0, (long) Math.floor(Math.log(ratio) / Math.log(INTEREST_PERCENT / 100.0)));
+        while (steps > 0 && !belowCap(grow(balance, (int) steps), initialDeposit)) {
+            steps--;
+        }
+        while (belowCap(grow(balance, (int) steps + 1), initialDeposit)) {
+            steps++;
+        }
+        return steps;
+    }
+
+    private static boolean belowCap(Money balance, Money initialDeposit) {
+        return balance.compareToRatio(initialDeposit, MAX_BALANCE_PERCENT, 100) < 0;
+    }
+
+    // balance * 1.1^steps, rounded half up once instead of after every period
+    private static Money grow(Money balance, int steps) {
+        var denominator = GROWTH_DENOMINATOR.pow(steps);
+        var scaled = BigInteger.valueOf(balance.minorUnits()).multiply(GROWTH_NUMERATOR.pow(steps));
+        var quotient = scaled.add(denominator.shiftRight(1)).divide(denominator);
+        return Money.ofMinor(quotient.longValueExact());
+    }
+}
@@ -0,0 +1,21 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.service.LedgerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Only the ledger mode and the sharded engine leave pending entries behind, the other modes write applied ones
+@Component
+@RequiredArgsConstructor
+@ConditionalOnExpression("'${application.transfer.mode:pessimistic}'.equalsIgnoreCase('ledger') or '${application.transfer.engine:default}' == 'sharded'")
+public class LedgerRollForwardJob {
+
+    private final LedgerService ledgerService;
+
+    @Scheduled(fixedDelayString = "${application.ledger.roll-forward-interval:1000}")
+    public void rollForward() {
+        ledgerService.rollForward();
+    }
+}
@@ -0,0 +1,131 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.domain.entity.TransferLedgerEntry;
+import com.elyashevich.bank.domain.model.AvailableBalance;
+import com.elyashevich.bank.domain.model.TransferCommand;
+import com.elyashevich.bank.repository.TransferLedgerRepository;
+import com.elyashevich.bank.service.LedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerServiceImpl implements LedgerService {
+
+    private static final String INSERT_ENTRY_SQL = """
+            INSERT INTO TRANSFER_LEDGER (TRANSFER_ID, USER_ID, AMOUNT, APPLIED, CLAIM_DEADLINE, CREATED_AT)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private final TransferLedgerRepository transferLedgerRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${application.ledger.roll-forward-batch-size:10000}")
+    private int rollForwardBatchSize = 10000;
+
+    @Value("${application.ledger.hand-off-claim-timeout:60000}")
+    private long handOffClaimTimeout = 60000;
+
+    @Override
+    @Transactional
+    public void record(List<TransferCommand> transfers, boolean applied) {
+        var createdAt = Instant.now();
+        var entries = new ArrayList<TransferLedgerEntry>(transfers.size() * 2);
+
+        for (var transfer : transfers) {
+            var transferId = UUID.randomUUID();
+            entries.add(entry(transferId, transfer.fromUserId(), transfer.amount().negate(), applied, createdAt));
+            entries.add(entry(transferId, transfer.toUserId(), transfer.amount(), applied, createdAt));
+        }
+
+        insert(entries);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, BigDecimal> findAvailableBalances(Collection<Long> userIds) {
+        return transferLedgerRepository.findAvailableBalances(userIds).stream()
+                .collect(Collectors.toMap(AvailableBalance::getUserId, AvailableBalance::getBalance));
+    }
+
+    @Override
+    @Transactional
+    public void rollForward() {
+        var updated = transferLedgerRepository.rollForward(rollForwardBatchSize, Instant.now());
+        if (updated > 0) {
+            log.debug("Ledger rolled forward into {} account balances", updated);
+        }
+    }
+
+    @Override
+    @Transactional
+    public UUID recordHandOff(TransferCommand transfer) {
+        var createdAt = Instant.now();
+        var transferId = UUID.randomUUID();
+
+        var credit = TransferLedgerEntry.builder()
+                .transferId(transferId)
+                .userId(transfer.toUserId())
+                .amount(transfer.amount())
+                .claimDeadline(createdAt.plusMillis(handOffClaimTimeout))
+                .createdAt(createdAt)
+                .build();
+
+        insert(List.of(entry(transferId, transfer.fromUserId(), transfer.amount().negate(), true, createdAt), credit));
+        return transferId;
+    }
+
+    @Override
+    @Transactional
+    public boolean claimCredit(UUID transferId) {
+        return transferLedgerRepository.markCreditApplied(transferId) > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean cancelHandOff(UUID transferId, Long fromUserId, BigDecimal amount) {
+        if (transferLedgerRepository.markCreditCancelled(transferId) == 0) {
+            return false;
+        }
+        // The ledger stays append-only: the refund is a compensating entry, the cancelled credit is kept
+        insert(List.of(entry(transferId, fromUserId, amount, true, Instant.now())));
+        return true;
+    }
+
+    // Identity keys keep Hibernate from batching inserts, so entries go through one JDBC batch instead
+    private void insert(List<TransferLedgerEntry> entries) {
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_SQL, entries, entries.size(), (statement, entry) -> {
+            statement.setObject(1, entry.getTransferId());
+            statement.setLong(2, entry.getUserId());
+            statement.setBigDecimal(3, entry.getAmount());
+            statement.setBoolean(4, entry.isApplied());
+            statement.setTimestamp(5, entry.getClaimDeadline() == null ? null : Timestamp.from(entry.getClaimDeadline()));
+            statement.setTimestamp(6, Timestamp.from(entry.getCreatedAt()));
+        });
+    }
+
+    private TransferLedgerEntry entry(UUID transferId, Long userId, BigDecimal amount, boolean applied, Instant createdAt) {
+        return TransferLedgerEntry.builder()
+                .transferId(transferId)
+                .userId(userId)
+                .amount(amount)
+                .applied(applied)
+                .createdAt(createdAt)
+                .build();
+    }
+}
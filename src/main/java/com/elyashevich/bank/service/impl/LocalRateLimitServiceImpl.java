@@ -0,0 +1,66 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.service.RateLimitService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets kept as a single "theoretical arrival time" per user (GCRA): a bucket is full once that time
+ * is in the past, and taking a token moves it one refill interval ahead. It is updated with a CAS, so callers
+ * never block each other.
+ */
+@Service
+@ConditionalOnProperty(name = "application.rate-limit.backend", havingValue = "local", matchIfMissing = true)
+public class LocalRateLimitServiceImpl implements RateLimitService {
+
+    private final Map<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    @Value("${application.rate-limit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${application.rate-limit.capacity:20}")
+    private long capacity = 20;
+
+    @Value("${application.rate-limit.refill-rate:10}")
+    private long refillRate = 10;
+
+    @Override
+    public boolean tryAcquire(Long userId, int permits) {
+        if (!enabled) {
+            return true;
+        }
+        if (permits > capacity) {
+            return false;
+        }
+
+        var interval = TimeUnit.SECONDS.toNanos(1) / refillRate;
+        var tolerance = interval * capacity;
+        var bucket = buckets.computeIfAbsent(userId, id -> new AtomicLong(System.nanoTime()));
+
+        while (true) {
+            var now = System.nanoTime();
+            var arrival = bucket.get();
+            var nextArrival = Math.max(arrival, now) + interval * permits;
+            if (nextArrival - now > tolerance) {
+                return false;
+            }
+            if (bucket.compareAndSet(arrival, nextArrival)) {
+                return true;
+            }
+        }
+    }
+
+    // A bucket whose arrival time has passed is full again, dropping it loses nothing
+    @Scheduled(fixedRate = 60000)
+    public void evictFullBuckets() {
+        var now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+}
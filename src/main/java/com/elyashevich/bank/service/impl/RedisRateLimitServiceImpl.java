@@ -0,0 +1,73 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.service.RateLimitService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cluster-wide variant of {@link LocalRateLimitServiceImpl}: the arrival time of each user lives in Redis and
+ * is moved by a script, using the Redis clock so nodes with skewed clocks agree.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.rate-limit.backend", havingValue = "redis")
+public class RedisRateLimitServiceImpl implements RateLimitService {
+
+    private static final String KEY_PREFIX = "rate_limit:";
+
+    // ARGV holds the refill interval and the tolerance in microseconds, then the number of permits
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>("""
+            local time = redis.call('time')
+            local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+            local arrival = tonumber(redis.call('get', KEYS[1]) or now)
+            local next_arrival = math.max(arrival, now) + tonumber(ARGV[1]) * tonumber(ARGV[3])
+            if next_arrival - now > tonumber(ARGV[2]) then
+                return 0
+            end
+            redis.call('set', KEYS[1], next_arrival, 'PX', math.ceil((next_arrival - now) / 1000))
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${application.rate-limit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${application.rate-limit.capacity:20}")
+    private long capacity = 20;
+
+    @Value("${application.rate-limit.refill-rate:10}")
+    private long refillRate = 10;
+
+    @Override
+    public boolean tryAcquire(Long userId, int permits) {
+        if (!enabled) {
+            return true;
+        }
+        if (permits > capacity) {
+            return false;
+        }
+
+        var interval = TimeUnit.SECONDS.toMicros(1) / refillRate;
+        try {
+            var acquired = redisTemplate.execute(ACQUIRE_SCRIPT, List.of(KEY_PREFIX + userId),
+                    String.valueOf(interval), String.valueOf(interval * capacity), String.valueOf(permits));
+            return !Long.valueOf(0).equals(acquired);
+        } catch (DataAccessException e) {
+            // Limiting protects shared resources, it must not take transfers down along with Redis
+            log.warn("Redis is unavailable for rate limiting, letting request of user {} through: {}", userId, e.getMessage());
+            return true;
+        }
+    }
+}
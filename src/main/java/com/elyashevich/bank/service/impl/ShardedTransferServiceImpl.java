@@ -0,0 +1,203 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.domain.model.TransferCommand;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.ResourceNotFoundException;
+import com.elyashevich.bank.repository.AccountRepository;
+import com.elyashevich.bank.service.LedgerService;
+import com.elyashevich.bank.service.TransferService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Routes every transfer to a single-threaded shard chosen by user id, so requests of this node never
+ * compete for the same account rows. Transfers between shards are split into a debit on the source
+ * shard and a credit on the destination shard, handed off through a pending ledger entry. A caller that
+ * already runs a transaction gets the guarded updates applied directly in it instead.
+ */
+@Slf4j
+@Primary
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "application.transfer.engine", havingValue = "sharded")
+public class ShardedTransferServiceImpl implements TransferService {
+
+    private final AccountRepository accountRepository;
+    private final LedgerService ledgerService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferServiceImpl transferServiceImpl;
+    private final InterestAccrual interestAccrual;
+
+    @Value("${application.transfer.shards:0}")
+    private int shardCount;
+
+    private ExecutorService[] shards;
+
+    @PostConstruct
+    public void start() {
+        if (interestAccrual.isLazy()) {
+            throw new IllegalStateException("Lazy interest is not supported by the sharded transfer engine");
+        }
+        if (shardCount <= 0) {
+            shardCount = Runtime.getRuntime().availableProcessors();
+        }
+        shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("transfer-shard-" + i).factory());
+        }
+        log.info("Sharded transfer engine started with {} shards", shardCount);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (var shard : shards) {
+            shard.shutdown();
+        }
+        for (var shard : shards) {
+            shard.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
+        validateTransferArguments(fromUserId, toUserId, amount);
+
+        var fromShard = shardOf(fromUserId);
+        var toShard = shardOf(toUserId);
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Shard threads commit on their own, so a caller's writes could not be atomic with the transfer
+            applyGuarded(fromUserId, toUserId, amount);
+        } else if (fromShard == toShard) {
+            execute(fromShard, () -> transactionTemplate.execute(status -> {
+                applyGuarded(fromUserId, toUserId, amount);
+                return null;
+            }));
+        } else {
+            transferAcrossShards(fromShard, toShard, fromUserId, toUserId, amount);
+        }
+
+        log.info("Transfer completed: {} RUB from user {} to user {}", amount, fromUserId, toUserId);
+    }
+
+    @Override
+    public void transferBatch(List<TransferCommand> transfers) {
+        transferServiceImpl.transferBatch(transfers);
+    }
+
+    // The debit commits together with a pending ledger credit, so money in flight is never lost: the destination
+    // shard claims the credit, and if the node dies first the ledger roll-forward applies it after the claim timeout
+    private void transferAcrossShards(int fromShard, int toShard, Long fromUserId, Long toUserId, BigDecimal amount) {
+        var transferId = execute(fromShard, () -> transactionTemplate.execute(status -> {
+            debit(fromUserId, amount);
+            return ledgerService.recordHandOff(new TransferCommand(fromUserId, toUserId, amount));
+        }));
+
+        try {
+            execute(toShard, () -> transactionTemplate.execute(status -> {
+                if (ledgerService.claimCredit(transferId)) {
+                    creditWithinMaxBalance(toUserId, amount);
+                }
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            execute(fromShard, () -> transactionTemplate.execute(status -> {
+                if (ledgerService.cancelHandOff(transferId, fromUserId, amount)) {
+                    accountRepository.credit(fromUserId, amount);
+                }
+                return null;
+            }));
+            log.warn("Transfer from user {} to user {} was reverted: {}", fromUserId, toUserId, e.getMessage());
+            throw e;
+        }
+    }
+
+    // Ascending user id order, so writers of other shards and nodes can not deadlock with this one
+    private void applyGuarded(Long fromUserId, Long toUserId, BigDecimal amount) {
+        if (fromUserId < toUserId) {
+            debit(fromUserId, amount);
+            creditWithinMaxBalance(toUserId, amount);
+        } else {
+            creditWithinMaxBalance(toUserId, amount);
+            debit(fromUserId, amount);
+        }
+        ledgerService.record(List.of(new TransferCommand(fromUserId, toUserId, amount)), true);
+    }
+
+    private void debit(Long userId, BigDecimal amount) {
+        if (accountRepository.debitIfSufficientFunds(userId, amount) == 0) {
+            requireAccount(userId);
+            var message = "User with id: '%s' can not transfer '%s'".formatted(userId, amount);
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+    }
+
+    private void creditWithinMaxBalance(Long userId, BigDecimal amount) {
+        if (accountRepository.creditWithinMaxBalance(userId, amount) == 0) {
+            requireAccount(userId);
+            var message = "Receiver would exceed maximum allowed balance";
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+    }
+
+    // A guarded update also matches no row when the account is missing
+    private void requireAccount(Long userId) {
+        if (accountRepository.findExistingUserIds(List.of(userId)).isEmpty()) {
+            throw new ResourceNotFoundException("User with id: '%s' was not found".formatted(userId));
+        }
+    }
+
+    private <T> T execute(int shard, Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, shards[shard]).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private int shardOf(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), shardCount);
+    }
+
+    private void validateTransferArguments(Long fromUserId, Long toUserId, BigDecimal amount) {
+        if (fromUserId == null || toUserId == null) {
+            var message = "User IDs cannot be null";
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+
+        if (fromUserId.equals(toUserId)) {
+            var message = "Cannot transfer money to the same account";
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            var message = "Transfer amount must be positive";
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+    }
+}
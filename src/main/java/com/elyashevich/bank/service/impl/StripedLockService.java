@@ -0,0 +1,89 @@
+package com.elyashevich.bank.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Service
+public class StripedLockService {
+
+    private final ReentrantLock[] stripes;
+    private final Timer[] waitTimers;
+
+    public StripedLockService(
+            @Value("${application.lock.local.stripes:64}") int stripeCount,
+            MeterRegistry meterRegistry
+    ) {
+        this.stripes = new ReentrantLock[stripeCount];
+        this.waitTimers = new Timer[stripeCount];
+
+        for (int i = 0; i < stripeCount; i++) {
+            var stripe = new ReentrantLock(true);
+            var tag = String.valueOf(i);
+            this.stripes[i] = stripe;
+            this.waitTimers[i] = Timer.builder("bank.lock.local.wait")
+                    .description("Time spent waiting for an in-JVM account lock stripe")
+                    .tag("stripe", tag)
+                    .register(meterRegistry);
+            Gauge.builder("bank.lock.local.queue", stripe, ReentrantLock::getQueueLength)
+                    .description("Threads queued on an in-JVM account lock stripe")
+                    .tag("stripe", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean lock(Collection<?> keys, long waitTime, TimeUnit unit) {
+        var deadline = System.nanoTime() + unit.toNanos(waitTime);
+        var acquired = new ArrayList<ReentrantLock>();
+
+        try {
+            // Stripes are always taken in ascending order, so overlapping key sets can not deadlock
+            for (var index : stripeIndexes(keys)) {
+                var stripe = stripes[index];
+                var start = System.nanoTime();
+                var locked = stripe.tryLock(Math.max(deadline - start, 0), TimeUnit.NANOSECONDS);
+                waitTimers[index].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                if (!locked) {
+                    log.debug("Could not acquire local lock stripe {} for keys {}", index, keys);
+                    acquired.reversed().forEach(ReentrantLock::unlock);
+                    return false;
+                }
+                acquired.add(stripe);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired.reversed().forEach(ReentrantLock::unlock);
+            return false;
+        }
+    }
+
+    public void unlock(Collection<?> keys) {
+        for (var index : stripeIndexes(keys).descendingSet()) {
+            var stripe = stripes[index];
+            if (stripe.isHeldByCurrentThread()) {
+                stripe.unlock();
+            }
+        }
+    }
+
+    private TreeSet<Integer> stripeIndexes(Collection<?> keys) {
+        var indexes = new TreeSet<Integer>();
+        for (var key : keys) {
+            var hash = key.hashCode();
+            indexes.add(Math.floorMod(hash ^ (hash >>> 16), stripes.length));
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,113 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.domain.model.TransferMode;
+import com.elyashevich.bank.domain.model.TransferPhase;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Latency of a transfer as a whole ({@code bank.transfer}) and of each of its phases ({@code bank.transfer.phase}),
+ * published as histograms so percentiles can be aggregated across nodes.
+ */
+@Component
+public class TransferMetrics {
+
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TransferPhase, Timer> succeededPhases = new EnumMap<>(TransferPhase.class);
+    private final Map<TransferPhase, Timer> failedPhases = new EnumMap<>(TransferPhase.class);
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        for (var phase : TransferPhase.values()) {
+            succeededPhases.put(phase, phaseTimer(phase, SUCCESS));
+            failedPhases.put(phase, phaseTimer(phase, FAILURE));
+        }
+    }
+
+    public void time(TransferPhase phase, Runnable action) {
+        time(phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T time(TransferPhase phase, Supplier<T> action) {
+        var start = System.nanoTime();
+        try {
+            var result = action.get();
+            succeededPhases.get(phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException e) {
+            failedPhases.get(phase).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    // Covers the flush and the database commit of the current transaction, the phases above only see statements
+    public void timeCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long start;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                start = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (start == 0) {
+                    return;
+                }
+                var timers = status == STATUS_COMMITTED ? succeededPhases : failedPhases;
+                timers.get(TransferPhase.COMMIT).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    public void recordTransfer(TransferMode mode, long startNanos, RuntimeException failure) {
+        Timer.builder("bank.transfer")
+                .description("Time taken by a transfer from validation to unlock")
+                .tag("mode", mode.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome(failure))
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer phaseTimer(TransferPhase phase, String outcome) {
+        return Timer.builder("bank.transfer.phase")
+                .description("Time taken by one phase of a transfer")
+                .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String outcome(RuntimeException failure) {
+        return switch (failure) {
+            case null -> SUCCESS;
+            case ResourceNotFoundException e -> "not_found";
+            case BusinessException e -> "rejected";
+            default -> "error";
+        };
+    }
+}
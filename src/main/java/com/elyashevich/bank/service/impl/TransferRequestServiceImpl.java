@@ -0,0 +1,71 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.domain.entity.TransferRequest;
+import com.elyashevich.bank.domain.model.TransferRequestStatus;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.ResourceNotFoundException;
+import com.elyashevich.bank.exception.TransferQueueFullException;
+import com.elyashevich.bank.repository.TransferRequestRepository;
+import com.elyashevich.bank.repository.UserRepository;
+import com.elyashevich.bank.service.TransferRequestService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferRequestServiceImpl implements TransferRequestService {
+
+    private final TransferRequestRepository transferRequestRepository;
+    private final UserRepository userRepository;
+
+    @Value("${application.transfer.async.max-queue-depth:10000}")
+    private long maxQueueDepth = 10000;
+
+    @Override
+    @Transactional
+    public TransferRequest submit(Long fromUserId, Long toUserId, BigDecimal amount) {
+        if (fromUserId.equals(toUserId)) {
+            var message = "Cannot transfer money to the same account";
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+
+        if (!userRepository.existsById(toUserId)) {
+            throw new ResourceNotFoundException("User with id: '%s' was not found".formatted(toUserId));
+        }
+
+        if (transferRequestRepository.hasAtLeast(TransferRequestStatus.PENDING.name(), maxQueueDepth)) {
+            var message = "Transfer queue is full, retry later";
+            log.warn(message);
+            throw new TransferQueueFullException(message);
+        }
+
+        var now = Instant.now();
+        var request = transferRequestRepository.save(TransferRequest.builder()
+                .fromUserId(fromUserId)
+                .toUserId(toUserId)
+                .amount(amount)
+                .status(TransferRequestStatus.PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+
+        log.info("Transfer request {} accepted: {} RUB from user {} to user {}", request.getId(), amount, fromUserId, toUserId);
+        return request;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TransferRequest findById(UUID id, Long fromUserId) {
+        return transferRequestRepository.findByIdAndFromUserId(id, fromUserId)
+                .orElseThrow(() -> new ResourceNotFoundException("Transfer request with id: '%s' was not found".formatted(id)));
+    }
+}
@@ -0,0 +1,150 @@
+package com.elyashevich.bank.service.impl;
+
+import com.elyashevich.bank.domain.entity.TransferRequest;
+import com.elyashevich.bank.domain.model.TransferRequestStatus;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.ResourceNotFoundException;
+import com.elyashevich.bank.exception.TransferConflictException;
+import com.elyashevich.bank.repository.TransferRequestRepository;
+import com.elyashevich.bank.service.TransferService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferRequestWorker {
+
+    private static final int MAX_FAILURE_REASON_LENGTH = 500;
+
+    private final TransferRequestRepository transferRequestRepository;
+    private final TransferService transferService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.transfer.async.workers:32}")
+    private int workers = 32;
+
+    @Value("${application.transfer.async.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${application.transfer.async.processing-timeout:300000}")
+    private long processingTimeout = 300000;
+
+    private Semaphore permits;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        permits = new Semaphore(workers);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Transfer workers did not finish in time, unfinished requests will be reclaimed");
+        }
+    }
+
+    // Only as many requests are claimed as there are free workers, the rest stay queued in the table
+    @Scheduled(fixedDelayString = "${application.transfer.async.poll-interval:200}")
+    public void poll() {
+        var available = permits.availablePermits();
+        if (available == 0) {
+            return;
+        }
+
+        var claimed = transactionTemplate.execute(status -> claim(available));
+        if (claimed == null) {
+            return;
+        }
+
+        for (var request : claimed) {
+            permits.acquireUninterruptibly();
+            executor.execute(() -> {
+                try {
+                    process(request);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${application.transfer.async.reclaim-interval:60000}")
+    public void releaseStale() {
+        var now = Instant.now();
+        var threshold = now.minusMillis(processingTimeout);
+        var failed = transferRequestRepository.failStale(threshold, maxAttempts, "Processing timed out", now);
+        if (failed > 0) {
+            log.warn("Failed {} stale transfer requests that ran out of attempts", failed);
+        }
+        var released = transferRequestRepository.releaseStale(threshold, maxAttempts, now);
+        if (released > 0) {
+            log.warn("Returned {} stale transfer requests to the queue", released);
+        }
+    }
+
+    private List<TransferRequest> claim(int limit) {
+        var requests = transferRequestRepository.findAllForProcessing(
+                TransferRequestStatus.PENDING, PageRequest.of(0, limit));
+
+        var now = Instant.now();
+        for (var request : requests) {
+            request.setStatus(TransferRequestStatus.PROCESSING);
+            request.setAttempts(request.getAttempts() + 1);
+            request.setUpdatedAt(now);
+        }
+        return requests;
+    }
+
+    // The status change commits together with the transfer, and only for the attempt that claimed the request
+    private void process(TransferRequest request) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (transferRequestRepository.markCompleted(request.getId(), request.getAttempts(), Instant.now()) == 0) {
+                    log.warn("Transfer request {} was reclaimed by another worker", request.getId());
+                    return;
+                }
+                transferService.transfer(request.getFromUserId(), request.getToUserId(), request.getAmount());
+            });
+        } catch (RuntimeException e) {
+            var retry = request.getAttempts() < maxAttempts && isTransient(e);
+            var status = retry ? TransferRequestStatus.PENDING : TransferRequestStatus.FAILED;
+            log.warn("Transfer request {} attempt {} failed: {}", request.getId(), request.getAttempts(), e.getMessage());
+
+            transactionTemplate.executeWithoutResult(transactionStatus -> transferRequestRepository.markUnsuccessful(
+                    request.getId(), request.getAttempts(), status, failureReason(e), Instant.now()));
+        }
+    }
+
+    // Validation failures such as insufficient funds or the balance cap fail the same way on every attempt
+    private boolean isTransient(RuntimeException e) {
+        if (e instanceof TransferConflictException) {
+            return true;
+        }
+        return !(e instanceof BusinessException) && !(e instanceof ResourceNotFoundException);
+    }
+
+    private String failureReason(RuntimeException e) {
+        var message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        return message.length() > MAX_FAILURE_REASON_LENGTH ? message.substring(0, MAX_FAILURE_REASON_LENGTH) : message;
+    }
+}
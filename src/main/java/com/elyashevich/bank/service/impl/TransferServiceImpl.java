@@ -1,67 +1,567 @@
 package com.elyashevich.bank.service.impl;
 
 import com.elyashevich.bank.domain.entity.Account;
+import com.elyashevich.bank.domain.model.LockHandle;
+import com.elyashevich.bank.domain.model.Money;
+import com.elyashevich.bank.domain.model.TransferCommand;
+import com.elyashevich.bank.domain.model.TransferMode;
+import com.elyashevich.bank.domain.model.TransferPhase;
 import com.elyashevich.bank.exception.BusinessException;
 import com.elyashevich.bank.exception.ResourceNotFoundException;
+import com.elyashevich.bank.exception.TransferConflictException;
 import com.elyashevich.bank.repository.AccountRepository;
-import com.elyashevich.bank.repository.RedisLockRepository;
-import com.elyashevich.bank.repository.UserRepository;
+import com.elyashevich.bank.repository.LockRepository;
+import com.elyashevich.bank.service.LedgerService;
 import com.elyashevich.bank.service.TransferService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransferServiceImpl implements TransferService {
 
+    private static final String LOCK_KEY_PREFIX = "account_lock:";
+    private static final long MAX_BALANCE_PERCENT = 207;
+
     private final AccountRepository accountRepository;
-    private final UserRepository userRepository;
-    private final RedisLockRepository redisLockRepository;
+    private final LockRepository lockRepository;
+    private final StripedLockService stripedLockService;
+    private final LedgerService ledgerService;
+    private final HotAccountRegistry hotAccountRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferMetrics transferMetrics;
+    private final InterestAccrual interestAccrual;
 
-    @Transactional
+    @Value("${application.transfer.mode:pessimistic}")
+    private TransferMode transferMode = TransferMode.PESSIMISTIC;
+
+    @Value("${application.transfer.netting:false}")
+    private boolean netting;
+
+    @Value("${application.transfer.optimistic.max-attempts:5}")
+    private int optimisticMaxAttempts = 5;
+
+    @Value("${application.transfer.optimistic.backoff:10}")
+    private long optimisticBackoff = 10;
+
+    @Value("${application.transfer.optimistic.max-backoff:200}")
+    private long optimisticMaxBackoff = 200;
+
+    @Value("${application.lock.lease-time:10000}")
+    private long lockLeaseTime = 10000;
+
+    @Value("${application.lock.wait-time:2000}")
+    private long lockWaitTime = 2000;
+
+    @Value("${application.lock.backend:redis}")
+    private String lockBackend = "redis";
+
+    @Value("${application.lock.local.max-striped-keys:2}")
+    private int maxStripedKeys = 2;
+
+    // Guarded updates change balances in SQL without loading them, so they cannot settle lazy interest first
+    @PostConstruct
+    public void checkInterestMode() {
+        if (interestAccrual.isLazy() && (transferMode == TransferMode.ATOMIC || transferMode == TransferMode.LEDGER || netting)) {
+            throw new IllegalStateException("Lazy interest requires the pessimistic or optimistic transfer mode without netting");
+        }
+    }
+
+    // Not @Transactional: an optimistic attempt can only fail at commit, so each retry needs a transaction of its own
+    @Override
     public void transfer(Long fromUserId, Long toUserId, BigDecimal amount) {
-        validateTransferParameters(fromUserId, toUserId, amount);
+        var start = System.nanoTime();
+        try {
+            // Existence of both users is checked by the account lookups of each mode, not by separate queries
+            transferMetrics.time(TransferPhase.VALIDATION, () -> validateTransferArguments(fromUserId, toUserId, amount));
+
+            if (transferMode == TransferMode.OPTIMISTIC && !hotAccountRegistry.isHot(toUserId)) {
+                transferWithOptimisticLock(fromUserId, toUserId, amount);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> {
+                    transferMetrics.timeCommit();
+                    switch (transferMode) {
+                        case PESSIMISTIC, OPTIMISTIC -> transferWithPessimisticLock(fromUserId, toUserId, amount);
+                        case ATOMIC -> transferWithConditionalUpdate(fromUserId, toUserId, amount);
+                        case LEDGER -> transferWithLedger(fromUserId, toUserId, amount);
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            transferMetrics.recordTransfer(transferMode, start, e);
+            throw e;
+        }
+
+        transferMetrics.recordTransfer(transferMode, start, null);
+        log.info("Transfer completed: {} RUB from user {} to user {}", amount, fromUserId, toUserId);
+    }
+
+    @Override
+    @Transactional
+    public void transferBatch(List<TransferCommand> transfers) {
+        if (transfers == null || transfers.isEmpty()) {
+            var message = "Transfer batch cannot be empty";
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+
+        transfers.forEach(transfer ->
+                validateTransferArguments(transfer.fromUserId(), transfer.toUserId(), transfer.amount()));
+
+        // A fixed (ascending) order prevents deadlocks between batches sharing accounts
+        var userIds = new TreeSet<Long>();
+        transfers.forEach(transfer -> {
+            userIds.add(transfer.fromUserId());
+            userIds.add(transfer.toUserId());
+        });
+
+        if (netting && transferMode != TransferMode.LEDGER) {
+            applyNetDeltas(transfers, userIds);
+            return;
+        }
+
+        if (transferMode == TransferMode.LEDGER) {
+            var locks = acquireLocks(userIds);
+            try {
+                appendToLedger(transfers, userIds);
+            } finally {
+                releaseLocksAfterCompletion(userIds, locks);
+            }
+        } else {
+            // As in a single transfer, hot receivers are credited through their buckets and need no exclusive lock
+            var hotReceivers = findHotReceivers(transfers);
+            var lockedIds = new TreeSet<>(userIds);
+            lockedIds.removeAll(hotReceivers);
+
+            var locks = acquireLocks(lockedIds);
+            try {
+                applyBatchToAccounts(transfers, lockedIds, hotReceivers);
+            } finally {
+                releaseLocksAfterCompletion(lockedIds, locks);
+            }
+        }
+
+        log.info("Batch transfer completed: {} transfers between {} accounts", transfers.size(), userIds.size());
+    }
+
+    // A hot account that also sends in the batch is debited, so it still needs the exclusive lock
+    private Set<Long> findHotReceivers(List<TransferCommand> transfers) {
+        var senders = transfers.stream().map(TransferCommand::fromUserId).collect(Collectors.toSet());
+        return transfers.stream()
+                .map(TransferCommand::toUserId)
+                .filter(userId -> !senders.contains(userId) && hotAccountRegistry.isHot(userId))
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
 
-        var fromUserLockKey = "account_lock:" + fromUserId;
-        var toUserLockKey = "account_lock:" + toUserId;
+    // Only the net movement of each account is written, with guarded updates in ascending user id order,
+    // so accounts whose flows cancel out are neither locked nor updated
+    private void applyNetDeltas(List<TransferCommand> transfers, Set<Long> userIds) {
+        requireAccounts(userIds, new HashSet<>(accountRepository.findExistingUserIds(userIds)));
 
+        var deltas = new TreeMap<Long, BigDecimal>();
+        for (var transfer : transfers) {
+            deltas.merge(transfer.fromUserId(), transfer.amount().negate(), BigDecimal::add);
+            deltas.merge(transfer.toUserId(), transfer.amount(), BigDecimal::add);
+        }
+
+        var updated = 0;
+        for (var delta : deltas.entrySet()) {
+            var amount = delta.getValue();
+            if (amount.signum() == 0) {
+                continue;
+            }
+            if (amount.signum() < 0) {
+                debitIfSufficientFunds(delta.getKey(), amount.negate());
+            } else if (hotAccountRegistry.isHot(delta.getKey())) {
+                creditHotReceiver(delta.getKey(), amount);
+            } else {
+                creditWithinMaxBalance(delta.getKey(), amount);
+            }
+            updated++;
+        }
+
+        ledgerService.record(transfers, true);
+
+        log.info("Netted batch transfer completed: {} transfers, {} of {} accounts updated",
+                transfers.size(), updated, userIds.size());
+    }
+
+    private void applyBatchToAccounts(List<TransferCommand> transfers, Set<Long> lockedIds, Set<Long> hotReceivers) {
+        var accounts = accountRepository.findAllByUserIdsWithPessimisticLock(lockedIds).stream()
+                .collect(Collectors.toMap(account -> account.getUser().getId(), Function.identity()));
+        requireAccounts(lockedIds, accounts.keySet());
+        accounts.values().forEach(this::settle);
+
+        var hotAccounts = new HashMap<Long, Account>();
+        var hotBalances = new HashMap<Long, Money>();
+        for (var userId : hotReceivers) {
+            var account = accountRepository.findByUserIdWithSharedLock(userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("User with id: '%s' was not found".formatted(userId)));
+            hotAccounts.put(userId, account);
+            hotBalances.put(userId, interestAccrual.effectiveBalance(account).plus(Money.of(accountRepository.sumBuckets(account.getId()))));
+        }
+
+        var hotCredits = new TreeMap<Long, BigDecimal>();
+        for (var transfer : transfers) {
+            var fromAccount = accounts.get(transfer.fromUserId());
+            var toBalance = hotBalances.get(transfer.toUserId());
+            if (toBalance == null) {
+                applyTransfer(fromAccount, accounts.get(transfer.toUserId()), transfer.amount());
+                continue;
+            }
+
+            var money = Money.of(transfer.amount());
+            validateTransferConditions(transfer.fromUserId(), fromAccount.getBalance(), toBalance, money);
+            fromAccount.setBalance(fromAccount.getBalance().minus(money));
+            hotBalances.put(transfer.toUserId(), toBalance.plus(money));
+            hotCredits.merge(transfer.toUserId(), transfer.amount(), BigDecimal::add);
+        }
+
+        accountRepository.saveAll(accounts.values());
+        hotCredits.forEach((userId, amount) -> creditBucket(hotAccounts.get(userId), amount));
+        ledgerService.record(transfers, true);
+    }
+
+    private void transferWithOptimisticLock(Long fromUserId, Long toUserId, BigDecimal amount) {
+        // Inside a caller's transaction a conflict marks that transaction rollback-only, so there is nothing to retry
+        var maxAttempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : optimisticMaxAttempts;
+
+        for (var attempt = 1; ; attempt++) {
+            try {
+                var applied = transactionTemplate.execute(status -> {
+                    transferMetrics.timeCommit();
+                    return applyOptimistically(fromUserId, toUserId, amount);
+                });
+                if (!Boolean.TRUE.equals(applied)) {
+                    // Bucketed accounts can only be folded under an exclusive row lock
+                    transactionTemplate.executeWithoutResult(status -> {
+                        transferMetrics.timeCommit();
+                        transferWithPessimisticLock(fromUserId, toUserId, amount);
+                    });
+                }
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    var message = "Transfer from user '%s' conflicted with concurrent updates %s times"
+                            .formatted(fromUserId, attempt);
+                    log.warn(message);
+                    throw new TransferConflictException(message, e);
+                }
+                log.debug("Optimistic transfer attempt {} from user {} conflicted, retrying", attempt, fromUserId);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private boolean applyOptimistically(Long fromUserId, Long toUserId, BigDecimal amount) {
+        var message = "User with id: '%s' was not found";
+
+        var fromAccount = transferMetrics.time(TransferPhase.FETCH, () -> accountRepository.findByUserId(fromUserId)
+                .orElseThrow(() -> new ResourceNotFoundException(message.formatted(fromUserId))));
+        var toAccount = transferMetrics.time(TransferPhase.FETCH, () -> accountRepository.findByUserId(toUserId)
+                .orElseThrow(() -> new ResourceNotFoundException(message.formatted(toUserId))));
+
+        if (fromAccount.getBucketCount() > 0 || toAccount.getBucketCount() > 0) {
+            return false;
+        }
+        interestAccrual.settle(fromAccount);
+        interestAccrual.settle(toAccount);
+
+        transferMetrics.time(TransferPhase.CONDITIONS, () -> applyTransfer(fromAccount, toAccount, amount));
+
+        // The version check runs when these updates are flushed at commit
+        transferMetrics.time(TransferPhase.SAVE, () -> {
+            accountRepository.saveAll(List.of(fromAccount, toAccount));
+            ledgerService.record(List.of(new TransferCommand(fromUserId, toUserId, amount)), true);
+        });
+        return true;
+    }
+
+    // Full jitter: a random pause up to an exponentially growing, capped bound
+    private void backoff(int attempt) {
+        var bound = Math.min(optimisticMaxBackoff, optimisticBackoff << Math.min(attempt - 1, 20));
         try {
-            var fromUserLockAcquired = redisLockRepository.lock(fromUserLockKey, 10, TimeUnit.SECONDS);
-            var toUserLockAcquired = redisLockRepository.lock(toUserLockKey, 10, TimeUnit.SECONDS);
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferConflictException("Transfer was interrupted", e);
+        }
+    }
+
+    private void transferWithPessimisticLock(Long fromUserId, Long toUserId, BigDecimal amount) {
+        // A hot receiver is credited through one of its buckets under a shared row lock,
+        // so only the sender is locked exclusively
+        var hotReceiver = hotAccountRegistry.isHot(toUserId);
+        var userIds = hotReceiver ? new TreeSet<>(List.of(fromUserId)) : new TreeSet<>(List.of(fromUserId, toUserId));
+        var locks = acquireLocks(userIds);
+
+        try {
+            var message = "User with id: '%s' was not found";
+
+            var fromAccount = transferMetrics.time(TransferPhase.FETCH, () -> {
+                var account = accountRepository.findByUserIdWithPessimisticLock(fromUserId)
+                        .orElseThrow(() -> new ResourceNotFoundException(message.formatted(fromUserId)));
+                settle(account);
+                return account;
+            });
+
+            if (hotReceiver) {
+                var toAccount = transferMetrics.time(TransferPhase.FETCH, () -> accountRepository.findByUserIdWithSharedLock(toUserId)
+                        .orElseThrow(() -> new ResourceNotFoundException(message.formatted(toUserId))));
+                var toBalance = transferMetrics.time(TransferPhase.FETCH, () ->
+                        interestAccrual.effectiveBalance(toAccount).plus(Money.of(accountRepository.sumBuckets(toAccount.getId()))));
+                var money = Money.of(amount);
 
-            if (!fromUserLockAcquired || !toUserLockAcquired) {
-                throw new BusinessException("Could not acquire locks for transfer operation");
+                transferMetrics.time(TransferPhase.CONDITIONS, () ->
+                        validateTransferConditions(fromUserId, fromAccount.getBalance(), toBalance, money));
+
+                fromAccount.setBalance(fromAccount.getBalance().minus(money));
+                transferMetrics.time(TransferPhase.SAVE, () -> {
+                    accountRepository.save(fromAccount);
+                    creditBucket(toAccount, amount);
+                });
+            } else {
+                var toAccount = transferMetrics.time(TransferPhase.FETCH, () -> {
+                    var account = accountRepository.findByUserIdWithPessimisticLock(toUserId)
+                            .orElseThrow(() -> new ResourceNotFoundException(message.formatted(toUserId)));
+                    settle(account);
+                    return account;
+                });
+
+                transferMetrics.time(TransferPhase.CONDITIONS, () -> applyTransfer(fromAccount, toAccount, amount));
+
+                transferMetrics.time(TransferPhase.SAVE, () -> {
+                    accountRepository.save(fromAccount);
+                    accountRepository.save(toAccount);
+                });
             }
+            transferMetrics.time(TransferPhase.SAVE, () ->
+                    ledgerService.record(List.of(new TransferCommand(fromUserId, toUserId, amount)), true));
+        } finally {
+            releaseLocksAfterCompletion(userIds, locks);
+        }
+    }
 
-            var message = "User with id: '%s' is locked.";
+    // Interest is settled on the main balance before the buckets are folded in, since bucket credits
+    // arrived during the periods being compounded
+    private void settle(Account account) {
+        interestAccrual.settle(account);
+        drainBuckets(account);
+    }
 
-            var fromAccount = accountRepository.findByUserIdWithPessimisticLock(fromUserId)
-                    .orElseThrow(() -> new ResourceNotFoundException(message.formatted(fromUserId)));
-            var toAccount = accountRepository.findByUserIdWithPessimisticLock(toUserId)
-                    .orElseThrow(() -> new ResourceNotFoundException(message.formatted(toUserId)));
+    // Bucket credits hold a shared lock on the account row, so under the exclusive lock taken here
+    // no credit is in flight and the buckets can be folded into the main balance
+    private void drainBuckets(Account account) {
+        if (account.getBucketCount() == 0) {
+            return;
+        }
+        var bucketBalance = accountRepository.sumBuckets(account.getId());
+        if (bucketBalance.signum() != 0) {
+            accountRepository.clearBuckets(account.getId());
+            account.setBalance(account.getBalance().plus(Money.of(bucketBalance)));
+        }
+    }
 
-            validateTransferConditions(fromAccount, toAccount, amount);
+    // Same cap as creditWithinMaxBalance, checked against the main balance plus the buckets
+    private void creditHotReceiver(Long userId, BigDecimal amount) {
+        var account = accountRepository.findByUserIdWithSharedLock(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User with id: '%s' was not found".formatted(userId)));
+        var balance = account.getBalance().plus(Money.of(accountRepository.sumBuckets(account.getId())));
+        if (balance.plus(Money.of(amount)).compareToRatio(balance, MAX_BALANCE_PERCENT, 100) > 0) {
+            var message = "Receiver would exceed maximum allowed balance";
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+        creditBucket(account, amount);
+    }
 
-            fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-            toAccount.setBalance(toAccount.getBalance().add(amount));
+    // Hot accounts always have buckets, see HotAccountRegistry.isHot
+    private void creditBucket(Account account, BigDecimal amount) {
+        var bucket = ThreadLocalRandom.current().nextInt(account.getBucketCount());
+        accountRepository.creditBucket(account.getId(), bucket, amount);
+    }
 
-            accountRepository.save(fromAccount);
-            accountRepository.save(toAccount);
+    private void transferWithLedger(Long fromUserId, Long toUserId, BigDecimal amount) {
+        var userIds = new TreeSet<>(List.of(fromUserId, toUserId));
+        var locks = acquireLocks(userIds);
 
-            log.info("Transfer completed: {} RUB from user {} to user {}", amount, fromUserId, toUserId);
+        try {
+            appendToLedger(List.of(new TransferCommand(fromUserId, toUserId, amount)), userIds);
         } finally {
-            redisLockRepository.unlock(fromUserLockKey);
-            redisLockRepository.unlock(toUserLockKey);
+            releaseLocksAfterCompletion(userIds, locks);
+        }
+    }
+
+    // ACCOUNT rows are not touched here: checks run against the balance snapshot plus pending entries,
+    // and the entries are folded into the snapshot later by LedgerService.rollForward
+    private void appendToLedger(List<TransferCommand> transfers, Set<Long> userIds) {
+        var balances = new HashMap<Long, Money>();
+        transferMetrics.time(TransferPhase.FETCH, () -> ledgerService.findAvailableBalances(userIds)
+                .forEach((userId, balance) -> balances.put(userId, Money.of(balance))));
+        requireAccounts(userIds, balances.keySet());
+
+        transferMetrics.time(TransferPhase.CONDITIONS, () -> {
+            for (var transfer : transfers) {
+                var amount = Money.of(transfer.amount());
+                validateTransferConditions(transfer.fromUserId(), balances.get(transfer.fromUserId()),
+                        balances.get(transfer.toUserId()), amount);
+                balances.merge(transfer.fromUserId(), amount.negate(), Money::plus);
+                balances.merge(transfer.toUserId(), amount, Money::plus);
+            }
+        });
+
+        transferMetrics.time(TransferPhase.SAVE, () -> ledgerService.record(transfers, false));
+    }
+
+    // A guarded update also matches no row when the account is missing, so that case is told apart here,
+    // off the successful path
+    private void requireAccount(Long userId) {
+        if (accountRepository.findExistingUserIds(List.of(userId)).isEmpty()) {
+            throw new ResourceNotFoundException("User with id: '%s' was not found".formatted(userId));
         }
     }
 
-    private void validateTransferParameters(Long fromUserId, Long toUserId, BigDecimal amount) {
+    private void requireAccounts(Set<Long> userIds, Set<Long> foundUserIds) {
+        var message = "User with id: '%s' was not found";
+        for (var userId : userIds) {
+            if (!foundUserIds.contains(userId)) {
+                throw new ResourceNotFoundException(message.formatted(userId));
+            }
+        }
+    }
+
+    // Requests on this node queue on in-JVM stripes first, so only one of them at a time goes to the lock backend
+    private List<LockHandle> acquireLocks(Collection<Long> userIds) {
+        return transferMetrics.time(TransferPhase.LOCK, () -> tryAcquireLocks(userIds));
+    }
+
+    private List<LockHandle> tryAcquireLocks(Collection<Long> userIds) {
+        // Both phases share one deadline, so a transfer never waits longer than lockWaitTime in total
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lockWaitTime);
+        var preStriped = isPreStriped(userIds);
+        if (preStriped && !stripedLockService.lock(userIds, lockWaitTime, TimeUnit.MILLISECONDS)) {
+            throw new TransferConflictException("Could not acquire locks for transfer operation");
+        }
+
+        try {
+            var lockKeys = userIds.stream().map(userId -> LOCK_KEY_PREFIX + userId).toList();
+            // At least a millisecond, since a zero lock_timeout disables the timeout of the advisory backend
+            var remainingWaitTime = Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1);
+
+            var locks = lockRepository.tryLockAll(lockKeys, remainingWaitTime, lockLeaseTime, TimeUnit.MILLISECONDS);
+            if (locks.isEmpty()) {
+                throw new TransferConflictException("Could not acquire locks for transfer operation");
+            }
+            return locks;
+        } catch (RuntimeException e) {
+            if (preStriped) {
+                stripedLockService.unlock(userIds);
+            }
+            throw e;
+        }
+    }
+
+    // The local backend is itself a set of in-JVM stripes, queuing on the same stripes first would mix two lock orders.
+    // Batches and groups would hold most of the stripes for their whole transaction and stall the node, so only
+    // transfers touching a few accounts queue on the stripes
+    private boolean isPreStriped(Collection<Long> userIds) {
+        return !"local".equals(lockBackend) && userIds.size() <= maxStripedKeys;
+    }
+
+    // Locks must outlive the row changes they protect, so they are released only once the transaction ends
+    private void releaseLocksAfterCompletion(Collection<Long> userIds, List<LockHandle> locks) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            releaseLocks(userIds, locks);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                releaseLocks(userIds, locks);
+            }
+        });
+    }
+
+    private void releaseLocks(Collection<Long> userIds, List<LockHandle> locks) {
+        transferMetrics.time(TransferPhase.UNLOCK, () -> {
+            try {
+                lockRepository.unlockAll(locks);
+            } catch (RuntimeException e) {
+                log.warn("Could not release locks {}: {}", locks, e.getMessage());
+            } finally {
+                if (isPreStriped(userIds)) {
+                    stripedLockService.unlock(userIds);
+                }
+            }
+        });
+    }
+
+    private void transferWithConditionalUpdate(Long fromUserId, Long toUserId, BigDecimal amount) {
+        // Rows are updated in ascending user id order so opposite transfers can not deadlock,
+        // the guards in the statements stand in for the fetch and conditions phases
+        transferMetrics.time(TransferPhase.SAVE, () -> {
+            if (fromUserId < toUserId) {
+                debitIfSufficientFunds(fromUserId, amount);
+                creditWithinMaxBalance(toUserId, amount);
+            } else {
+                creditWithinMaxBalance(toUserId, amount);
+                debitIfSufficientFunds(fromUserId, amount);
+            }
+
+            ledgerService.record(List.of(new TransferCommand(fromUserId, toUserId, amount)), true);
+        });
+    }
+
+    private void debitIfSufficientFunds(Long userId, BigDecimal amount) {
+        if (accountRepository.debitIfSufficientFunds(userId, amount) == 0) {
+            requireAccount(userId);
+            var message = "User with id: '%s' can not transfer '%s'".formatted(userId, amount);
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+    }
+
+    private void creditWithinMaxBalance(Long userId, BigDecimal amount) {
+        if (accountRepository.creditWithinMaxBalance(userId, amount) == 0) {
+            requireAccount(userId);
+            var message = "Receiver would exceed maximum allowed balance";
+            log.warn(message);
+            throw new BusinessException(message);
+        }
+    }
+
+    private void applyTransfer(Account fromAccount, Account toAccount, BigDecimal amount) {
+        var money = Money.of(amount);
+        validateTransferConditions(fromAccount.getUser().getId(), fromAccount.getBalance(), toAccount.getBalance(), money);
+
+        fromAccount.setBalance(fromAccount.getBalance().minus(money));
+        toAccount.setBalance(toAccount.getBalance().plus(money));
+    }
+
+    private void validateTransferArguments(Long fromUserId, Long toUserId, BigDecimal amount) {
         if (fromUserId == null || toUserId == null) {
             var message = "User IDs cannot be null";
             log.warn(message);
@@ -80,36 +580,31 @@ public class TransferServiceImpl implements TransferService {
             throw new BusinessException(message);
         }
 
-        var message = "User with id: '%s' was not found";
-
-        if (!userRepository.existsById(fromUserId)) {
-            throw new ResourceNotFoundException(message.formatted(fromUserId));
-        }
-
-        if (!userRepository.existsById(toUserId)) {
-            throw new ResourceNotFoundException(message.formatted(toUserId));
+        if (amount.scale() > 2 && amount.stripTrailingZeros().scale() > 2) {
+            var message = "Transfer amount can not contain fractions of a kopeck";
+            log.warn(message);
+            throw new BusinessException(message);
         }
     }
 
-    private void validateTransferConditions(Account fromAccount, Account toAccount, BigDecimal amount) {
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
+    private void validateTransferConditions(Long fromUserId, Money fromBalance, Money toBalance, Money amount) {
+        if (fromBalance.isLessThan(amount)) {
             var message = "User with is: '%s' with balance: '%s' can not transfer '%s'"
-                    .formatted(fromAccount.getUser().getId(), fromAccount.getBalance(), amount);
+                    .formatted(fromUserId, fromBalance, amount);
             log.warn(message);
             throw new BusinessException(message);
         }
 
-        BigDecimal newFromBalance = fromAccount.getBalance().subtract(amount);
-        if (newFromBalance.compareTo(BigDecimal.ZERO) < 0) {
+        var newFromBalance = fromBalance.minus(amount);
+        if (newFromBalance.signum() < 0) {
             var message = "Transfer would result in negative balance";
             log.warn(message);
             throw new BusinessException(message);
         }
 
         // Check if receiver would exceed max balance (207% of initial deposit)
-        BigDecimal maxAllowedBalance = toAccount.getBalance().multiply(new BigDecimal("2.07"));
-        BigDecimal newToBalance = toAccount.getBalance().add(amount);
-        if (newToBalance.compareTo(maxAllowedBalance) > 0) {
+        var newToBalance = toBalance.plus(amount);
+        if (newToBalance.compareToRatio(toBalance, MAX_BALANCE_PERCENT, 100) > 0) {
             var message = "Receiver would exceed maximum allowed balance";
             log.warn(message);
             throw new BusinessException(message);
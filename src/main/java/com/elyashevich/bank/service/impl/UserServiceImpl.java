@@ -1,14 +1,17 @@
 package com.elyashevich.bank.service.impl;
 
+import com.elyashevich.bank.domain.entity.Account;
 import com.elyashevich.bank.domain.entity.EmailData;
 import com.elyashevich.bank.domain.entity.PhoneData;
 import com.elyashevich.bank.domain.entity.User;
 import com.elyashevich.bank.domain.event.EntityEvent;
 import com.elyashevich.bank.domain.event.EventAction;
 import com.elyashevich.bank.domain.event.UserAggregate;
+import com.elyashevich.bank.domain.model.Money;
 import com.elyashevich.bank.exception.BusinessException;
 import com.elyashevich.bank.exception.ResourceAlreadyExistsException;
 import com.elyashevich.bank.exception.ResourceNotFoundException;
+import com.elyashevich.bank.repository.AccountRepository;
 import com.elyashevich.bank.repository.UserRepository;
 import com.elyashevich.bank.service.EmailDataService;
 import com.elyashevich.bank.service.PhoneDataService;
@@ -34,6 +37,9 @@ public class UserServiceImpl implements UserService {
     private final EmailDataService emailDataService;
     private final UserRepository userRepository;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final InterestAccrual interestAccrual;
+    private final AccountRepository accountRepository;
+    private final HotAccountRegistry hotAccountRegistry;
 
     @Override
     public User findById(Long id) {
@@ -46,6 +52,7 @@ public class UserServiceImpl implements UserService {
                     return new ResourceNotFoundException(message);
                 });
 
+        this.showBalance(user.getAccount());
         log.info("Found by id: {}, user: {}", id, user);
         return user;
     }
@@ -62,6 +69,7 @@ public class UserServiceImpl implements UserService {
                 }
         );
 
+        this.showBalance(user.getAccount());
         log.info("User with email: '{}' found: '{}' ", email, user);
         return user;
     }
@@ -76,6 +84,7 @@ public class UserServiceImpl implements UserService {
         user.getAccount().setUser(user);
 
         var newUser = this.userRepository.save(user);
+        this.hotAccountRegistry.splitIfHot(newUser.getId());
 
         publishEvent(EventAction.CREATE, newUser);
         log.info("New user created: '{}'", newUser);
@@ -87,6 +96,7 @@ public class UserServiceImpl implements UserService {
         log.debug("Attempting find All users");
 
         var users = this.userRepository.findAll();
+        users.forEach(user -> this.showBalance(user.getAccount()));
 
         log.info("Found users: {}", users.size());
         return users;
@@ -173,11 +183,22 @@ public class UserServiceImpl implements UserService {
                 .build();
     }
 
+    // Bucket sums are read only for hot accounts, so regular account loads stay a single row lookup
+    private void showBalance(Account account) {
+        if (account == null) {
+            return;
+        }
+        this.interestAccrual.preview(account);
+        if (account.getBucketCount() > 0) {
+            account.setBucketBalance(Money.of(this.accountRepository.sumBuckets(account.getId())));
+        }
+    }
+
     private void publishEvent(EventAction action, User user) {
         var event = new EntityEvent<>(action, UserAggregate.builder()
                 .id(user.getId())
                 .name(user.getName())
-                .balance(user.getAccount().getBalance())
+                .balance(user.getAccount().getTotalBalance().toBigDecimal())
                 .emails(user.getEmails().stream().map(EmailData::getEmail).toList())
                 .phones(user.getPhones().stream().map(PhoneData::getPhone).toList())
                 .dateOfBirth(user.getDateOfBirth())
@@ -0,0 +1,121 @@
+package com.elyashevich.bank.benchmark;
+
+import com.elyashevich.bank.domain.model.BalanceColumns;
+import com.elyashevich.bank.domain.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory part of one streaming interest run over chunks of 10000 accounts: {@code rowObjects} accrues
+ * rows carrying a {@link BigDecimal} balance one object at a time, the way the streaming mode did before,
+ * {@code columns} fills {@link BalanceColumns} with kopecks as the chunk query now returns them,
+ * and {@code columnsKernel} times the loop over filled columns alone.
+ * <p>
+ * Runs with the GC profiler and needs no external services.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class InterestAccrualBenchmark {
+
+    private static final int CHUNK_SIZE = 10000;
+
+    @Param({"1000000", "10000000"})
+    private int accounts;
+
+    private long[] ids;
+    private BigDecimal[] balances;
+    private long[] minorUnits;
+    private long[] accrued;
+    private BalanceColumns columns;
+
+    @Setup
+    public void setUp() {
+        var random = ThreadLocalRandom.current();
+        ids = new long[accounts];
+        balances = new BigDecimal[accounts];
+        minorUnits = new long[accounts];
+        accrued = new long[accounts];
+        for (var i = 0; i < accounts; i++) {
+            ids[i] = i + 1;
+            minorUnits[i] = random.nextLong(0, 100_000_000);
+            balances[i] = BigDecimal.valueOf(minorUnits[i], 2);
+        }
+        columns = new BalanceColumns(CHUNK_SIZE);
+    }
+
+    @Benchmark
+    public void rowObjects(Blackhole blackhole) {
+        for (var from = 0; from < accounts; from += CHUNK_SIZE) {
+            var to = Math.min(from + CHUNK_SIZE, accounts);
+            var accruedRows = new ArrayList<AccruedRow>(to - from);
+            for (var i = from; i < to; i++) {
+                var row = new Row(ids[i], balances[i]);
+                var current = Money.of(row.balance());
+                var newBalance = current.multiply(110, 100);
+                var next = newBalance.compareToRatio(current, 207, 100) < 0 ? newBalance : current;
+                if (!next.equals(current)) {
+                    accruedRows.add(new AccruedRow(row.id(), next));
+                }
+            }
+            blackhole.consume(accruedRows);
+        }
+    }
+
+    @Benchmark
+    public void columns(Blackhole blackhole) {
+        for (var from = 0; from < accounts; from += CHUNK_SIZE) {
+            var to = Math.min(from + CHUNK_SIZE, accounts);
+            columns.clear();
+            for (var i = from; i < to; i++) {
+                columns.add(ids[i], minorUnits[i]);
+            }
+            var changed = columns.accrue();
+            for (var i = 0; i < changed; i++) {
+                blackhole.consume(columns.changedId(i));
+                blackhole.consume(columns.changedBalance(i).minorUnits());
+            }
+        }
+    }
+
+    @Benchmark
+    public long[] columnsKernel() {
+        BalanceColumns.accrue(minorUnits, accrued, accounts);
+        return accrued;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InterestAccrualBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    private record Row(long id, BigDecimal balance) {
+    }
+
+    private record AccruedRow(long id, Money balance) {
+    }
+}
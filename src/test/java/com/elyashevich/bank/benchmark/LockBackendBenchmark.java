@@ -0,0 +1,136 @@
+package com.elyashevich.bank.benchmark;
+
+import com.elyashevich.bank.repository.LockRepository;
+import com.elyashevich.bank.repository.impl.AdvisoryLockRepositoryImpl;
+import com.elyashevich.bank.repository.impl.LocalLockRepositoryImpl;
+import com.elyashevich.bank.repository.impl.RedisLockRepositoryImpl;
+import com.elyashevich.bank.service.impl.StripedLockService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock + unlock of the two account keys of a transfer for every lock backend.
+ * <p>
+ * Needs the Redis and PostgreSQL instances from docker-compose, connection settings can be
+ * overridden with {@code -Dbench.redis.host}, {@code -Dbench.redis.port}, {@code -Dbench.postgres.url},
+ * {@code -Dbench.postgres.username} and {@code -Dbench.postgres.password}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class LockBackendBenchmark {
+
+    @Param({"redis", "advisory", "local"})
+    private String backend;
+
+    // 2 accounts means every transfer collides, 10000 means almost none do
+    @Param({"2", "10000"})
+    private int accounts;
+
+    private LockRepository lockRepository;
+    private TransactionTemplate transactionTemplate;
+    private LettuceConnectionFactory redisConnectionFactory;
+    private RedisMessageListenerContainer listenerContainer;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LockBackendBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (backend) {
+            case "redis" -> {
+                var configuration = new RedisStandaloneConfiguration(
+                        System.getProperty("bench.redis.host", "localhost"),
+                        Integer.getInteger("bench.redis.port", 6379)
+                );
+                redisConnectionFactory = new LettuceConnectionFactory(configuration);
+                redisConnectionFactory.afterPropertiesSet();
+                redisConnectionFactory.start();
+
+                listenerContainer = new RedisMessageListenerContainer();
+                listenerContainer.setConnectionFactory(redisConnectionFactory);
+                listenerContainer.afterPropertiesSet();
+                listenerContainer.start();
+
+                var repository = new RedisLockRepositoryImpl(new StringRedisTemplate(redisConnectionFactory), listenerContainer);
+                repository.subscribe();
+                lockRepository = repository;
+            }
+            case "advisory" -> {
+                var dataSource = new DriverManagerDataSource(
+                        System.getProperty("bench.postgres.url", "jdbc:postgresql://localhost:5432/postgres"),
+                        System.getProperty("bench.postgres.username", "postgres"),
+                        System.getProperty("bench.postgres.password", "postgres")
+                );
+                transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+                lockRepository = new AdvisoryLockRepositoryImpl(new JdbcTemplate(dataSource));
+            }
+            case "local" -> lockRepository = new LocalLockRepositoryImpl(new StripedLockService(64, new SimpleMeterRegistry()));
+            default -> throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (listenerContainer != null) {
+            listenerContainer.stop();
+        }
+        if (redisConnectionFactory != null) {
+            redisConnectionFactory.destroy();
+        }
+    }
+
+    @Benchmark
+    public int lockAndUnlockTransferAccounts() {
+        var random = ThreadLocalRandom.current();
+        var from = random.nextInt(accounts);
+        var to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+        var keys = List.of("bench_lock:" + Math.min(from, to), "bench_lock:" + Math.max(from, to));
+
+        if (transactionTemplate == null) {
+            return lockAndUnlock(keys);
+        }
+        return transactionTemplate.execute(status -> lockAndUnlock(keys));
+    }
+
+    private int lockAndUnlock(List<String> keys) {
+        var locks = lockRepository.tryLockAll(keys, 1000, 10000, TimeUnit.MILLISECONDS);
+        lockRepository.unlockAll(locks);
+        return locks.size();
+    }
+}
@@ -0,0 +1,117 @@
+package com.elyashevich.bank.benchmark;
+
+import com.elyashevich.bank.domain.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer validation and interest accrual on {@link BigDecimal} balances against {@link Money} balances.
+ * <p>
+ * Runs with the GC profiler, so {@code gc.alloc.rate.norm} shows the bytes allocated per operation.
+ * Needs no external services.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final BigDecimal MAX_BALANCE_RATIO = new BigDecimal("2.07");
+    private static final BigDecimal INTEREST_RATIO = new BigDecimal("1.10");
+
+    private final BigDecimal[] decimalBalances = new BigDecimal[SIZE];
+    private final BigDecimal[] decimalAmounts = new BigDecimal[SIZE];
+    private final Money[] moneyBalances = new Money[SIZE];
+    private final Money[] moneyAmounts = new Money[SIZE];
+
+    @Setup
+    public void setUp() {
+        var random = ThreadLocalRandom.current();
+        for (var i = 0; i < SIZE; i++) {
+            decimalBalances[i] = BigDecimal.valueOf(random.nextLong(100, 100_000_000), 2);
+            decimalAmounts[i] = BigDecimal.valueOf(random.nextLong(1, 10_000_000), 2);
+            moneyBalances[i] = Money.of(decimalBalances[i]);
+            moneyAmounts[i] = Money.of(decimalAmounts[i]);
+        }
+    }
+
+    @Benchmark
+    public int validateBigDecimal() {
+        var accepted = 0;
+        for (var i = 0; i < SIZE; i++) {
+            var fromBalance = decimalBalances[i];
+            var toBalance = decimalBalances[SIZE - 1 - i];
+            var amount = decimalAmounts[i];
+            if (fromBalance.compareTo(amount) >= 0
+                    && fromBalance.subtract(amount).signum() >= 0
+                    && toBalance.add(amount).compareTo(toBalance.multiply(MAX_BALANCE_RATIO)) <= 0) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    public int validateMoney() {
+        var accepted = 0;
+        for (var i = 0; i < SIZE; i++) {
+            var fromBalance = moneyBalances[i];
+            var toBalance = moneyBalances[SIZE - 1 - i];
+            var amount = moneyAmounts[i];
+            if (!fromBalance.isLessThan(amount)
+                    && fromBalance.minus(amount).signum() >= 0
+                    && toBalance.plus(amount).compareToRatio(toBalance, 207, 100) <= 0) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    @Benchmark
+    public BigDecimal[] accrueBigDecimal() {
+        var result = new BigDecimal[SIZE];
+        for (var i = 0; i < SIZE; i++) {
+            var balance = decimalBalances[i];
+            var newBalance = balance.multiply(INTEREST_RATIO);
+            result[i] = newBalance.compareTo(balance.multiply(MAX_BALANCE_RATIO)) < 0 ? newBalance : balance;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Money[] accrueMoney() {
+        var result = new Money[SIZE];
+        for (var i = 0; i < SIZE; i++) {
+            var balance = moneyBalances[i];
+            var newBalance = balance.multiply(110, 100);
+            result[i] = newBalance.compareToRatio(balance, 207, 100) < 0 ? newBalance : balance;
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,228 @@
+package com.elyashevich.bank.repository;
+
+import com.elyashevich.bank.domain.model.LockHandle;
+import com.elyashevich.bank.repository.impl.RedisLockRepositoryImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the lock scripts and the release channel against the Redis version of docker-compose.
+ * Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RedisLockRepositoryImplTest {
+
+    private static final String RELEASE_CHANNEL = "lock-release";
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>(DockerImageName.parse("redis:6.2"))
+            .withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static RedisMessageListenerContainer listenerContainer;
+    private static StringRedisTemplate redisTemplate;
+
+    private RedisLockRepositoryImpl lockRepository;
+    private MessageListener releaseListener;
+
+    @BeforeAll
+    static void startRedisClients() {
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedisClients() {
+        listenerContainer.stop();
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+        lockRepository = new RedisLockRepositoryImpl(redisTemplate, listenerContainer);
+        lockRepository.subscribe();
+    }
+
+    @AfterEach
+    void tearDown() {
+        listenerContainer.removeMessageListener(lockRepository);
+        if (releaseListener != null) {
+            listenerContainer.removeMessageListener(releaseListener);
+        }
+        lockRepository.shutdown();
+    }
+
+    @Test
+    void acquireScriptShouldReturnIndexAndLeaseOfFirstHeldKey() {
+        redisTemplate.opsForValue().set("lock:b", "other", 5000, TimeUnit.MILLISECONDS);
+        @SuppressWarnings("unchecked")
+        var script = (RedisScript<List<Long>>) ReflectionTestUtils.getField(RedisLockRepositoryImpl.class, "ACQUIRE_SCRIPT");
+
+        var result = redisTemplate.execute(script, List.of("lock:a", "lock:b", "lock:c"), "owner", "10000");
+
+        assertAll(
+            () -> assertEquals(2, result.size()),
+            () -> assertEquals(-2L, result.get(0)),
+            () -> assertTrue(result.get(1) > 0 && result.get(1) <= 5000),
+            () -> assertFalse(redisTemplate.hasKey("lock:a")),
+            () -> assertFalse(redisTemplate.hasKey("lock:c"))
+        );
+    }
+
+    @Test
+    void tryLockAllShouldTakeEveryKeyWithOneOwner() {
+        var locks = lockRepository.tryLockAll(List.of("lock:a", "lock:b"), 0, 10000, TimeUnit.MILLISECONDS);
+
+        assertAll(
+            () -> assertEquals(2, locks.size()),
+            () -> assertEquals(locks.get(0).owner(), locks.get(1).owner()),
+            () -> assertEquals(locks.get(0).owner(), redisTemplate.opsForValue().get("lock:a")),
+            () -> assertEquals(locks.get(0).owner(), redisTemplate.opsForValue().get("lock:b")),
+            () -> assertTrue(redisTemplate.getExpire("lock:a", TimeUnit.MILLISECONDS) > 0)
+        );
+    }
+
+    @Test
+    void tryLockAllShouldTakeNothingWhenAnyKeyIsHeld() {
+        redisTemplate.opsForValue().set("lock:b", "other", 5000, TimeUnit.MILLISECONDS);
+
+        var locks = lockRepository.tryLockAll(List.of("lock:a", "lock:b"), 0, 10000, TimeUnit.MILLISECONDS);
+
+        assertAll(
+            () -> assertTrue(locks.isEmpty()),
+            () -> assertFalse(redisTemplate.hasKey("lock:a")),
+            () -> assertEquals("other", redisTemplate.opsForValue().get("lock:b"))
+        );
+    }
+
+    @Test
+    void unlockAllShouldReleaseOnlyKeysOfTheOwnerAndPublishThem() throws InterruptedException {
+        var released = subscribeToReleases();
+        var locks = lockRepository.tryLockAll(List.of("lock:a"), 0, 10000, TimeUnit.MILLISECONDS);
+
+        lockRepository.unlockAll(List.of(new LockHandle("lock:a", "other")));
+        var foreignRelease = released.poll(200, TimeUnit.MILLISECONDS);
+        var keptAfterForeignRelease = redisTemplate.hasKey("lock:a");
+
+        lockRepository.unlockAll(locks);
+
+        assertAll(
+            () -> assertNull(foreignRelease),
+            () -> assertTrue(keptAfterForeignRelease),
+            () -> assertFalse(redisTemplate.hasKey("lock:a")),
+            () -> assertEquals("lock:a", released.poll(2, TimeUnit.SECONDS))
+        );
+    }
+
+    @Test
+    void tryLockShouldWakeWaiterOnReleaseBeforeLeaseRunsOut() throws Exception {
+        var holder = lockRepository.tryLock("lock:a", 0, 30000, TimeUnit.MILLISECONDS).orElseThrow();
+        var waiter = CompletableFuture.supplyAsync(() -> lockRepository.tryLock("lock:a", 10000, 10000, TimeUnit.MILLISECONDS));
+        awaitWaiters("lock:a", 1);
+
+        var releasedAt = System.nanoTime();
+        lockRepository.unlock(holder);
+        var acquired = waiter.get(5, TimeUnit.SECONDS);
+        var wokenAfter = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - releasedAt);
+
+        assertAll(
+            () -> assertTrue(acquired.isPresent()),
+            () -> assertTrue(wokenAfter < 2000, "waiter woke after " + wokenAfter + " ms")
+        );
+    }
+
+    @Test
+    void tryLockShouldRejectWaitersBeyondMaxWaiters() throws Exception {
+        ReflectionTestUtils.setField(lockRepository, "maxWaiters", 1);
+        var holder = lockRepository.tryLock("lock:a", 0, 30000, TimeUnit.MILLISECONDS).orElseThrow();
+        var firstWaiter = CompletableFuture.supplyAsync(() -> lockRepository.tryLock("lock:a", 5000, 10000, TimeUnit.MILLISECONDS));
+        awaitWaiters("lock:a", 1);
+
+        var start = System.nanoTime();
+        var secondWaiter = lockRepository.tryLock("lock:a", 5000, 10000, TimeUnit.MILLISECONDS);
+        var rejectedAfter = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        lockRepository.unlock(holder);
+        assertAll(
+            () -> assertTrue(secondWaiter.isEmpty()),
+            () -> assertTrue(rejectedAfter < 1000, "second waiter was rejected after " + rejectedAfter + " ms"),
+            () -> assertTrue(firstWaiter.get(5, TimeUnit.SECONDS).isPresent())
+        );
+    }
+
+    @Test
+    void watchdogShouldRenewLeaseUntilUnlock() throws InterruptedException {
+        ReflectionTestUtils.setField(lockRepository, "watchdogEnabled", true);
+        var lock = lockRepository.tryLock("lock:a", 0, 300, TimeUnit.MILLISECONDS).orElseThrow();
+
+        Thread.sleep(1000);
+        var ownerAfterLease = redisTemplate.opsForValue().get("lock:a");
+        lockRepository.unlock(lock);
+
+        assertAll(
+            () -> assertEquals(lock.owner(), ownerAfterLease),
+            () -> assertFalse(redisTemplate.hasKey("lock:a"))
+        );
+    }
+
+    private BlockingQueue<String> subscribeToReleases() throws InterruptedException {
+        var released = new LinkedBlockingQueue<String>();
+        releaseListener = (message, pattern) -> released.add(new String(message.getBody(), StandardCharsets.UTF_8));
+        listenerContainer.addMessageListener(releaseListener, new ChannelTopic(RELEASE_CHANNEL));
+        // the subscription is registered asynchronously
+        Thread.sleep(200);
+        return released;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void awaitWaiters(String key, int waiters) throws InterruptedException {
+        var waitQueues = (Map<String, Object>) ReflectionTestUtils.getField(lockRepository, "waitQueues");
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            var queue = waitQueues.get(key);
+            if (queue != null && (int) ReflectionTestUtils.getField(queue, "waiters") >= waiters) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("No waiter queued on " + key);
+    }
+}
@@ -0,0 +1,351 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.entity.Account;
+import com.elyashevich.bank.domain.entity.JobCheckpoint;
+import com.elyashevich.bank.domain.model.BalanceColumns;
+import com.elyashevich.bank.domain.model.InterestMode;
+import com.elyashevich.bank.domain.model.LockHandle;
+import com.elyashevich.bank.domain.model.Money;
+import com.elyashevich.bank.repository.AccountRepository;
+import com.elyashevich.bank.repository.JobCheckpointRepository;
+import com.elyashevich.bank.repository.LockRepository;
+import com.elyashevich.bank.service.impl.BalanceUpdateService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceUpdateServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private LockRepository lockRepository;
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+    @InjectMocks
+    private BalanceUpdateService balanceUpdateService;
+
+    @Test
+    void increaseBalancesShouldUpdateAccountsInIdRanges() {
+        ReflectionTestUtils.setField(balanceUpdateService, "skipLocked", false);
+        ReflectionTestUtils.setField(balanceUpdateService, "chunkSize", 10);
+        when(accountRepository.findMinId()).thenReturn(1L);
+        when(accountRepository.findMaxId()).thenReturn(25L);
+        when(accountRepository.accrueInterest(anyLong(), anyLong())).thenReturn(10);
+
+        balanceUpdateService.increaseBalances();
+
+        var inOrder = inOrder(accountRepository);
+        assertAll(
+            () -> inOrder.verify(accountRepository).accrueInterest(1L, 10L),
+            () -> inOrder.verify(accountRepository).accrueInterest(11L, 20L),
+            () -> inOrder.verify(accountRepository).accrueInterest(21L, 25L),
+            () -> verify(transactionTemplate, times(3)).execute(any()),
+            () -> verify(accountRepository, never()).findAll()
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldFoldBucketsBeforeAccruing() {
+        ReflectionTestUtils.setField(balanceUpdateService, "skipLocked", false);
+        when(accountRepository.findBucketedAccountIds()).thenReturn(List.of(7L));
+        when(accountRepository.lockById(7L)).thenReturn(Optional.of(7L));
+        when(accountRepository.findMinId()).thenReturn(1L);
+        when(accountRepository.findMaxId()).thenReturn(10L);
+
+        balanceUpdateService.increaseBalances();
+
+        var inOrder = inOrder(accountRepository, transactionManager);
+        assertAll(
+            () -> inOrder.verify(accountRepository).lockById(7L),
+            () -> inOrder.verify(accountRepository).foldBuckets(7L),
+            () -> inOrder.verify(transactionManager).commit(any()),
+            () -> inOrder.verify(accountRepository).accrueInterest(1L, 10L)
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldUseSingleUpdateWithoutChunkSize() {
+        ReflectionTestUtils.setField(balanceUpdateService, "skipLocked", false);
+        ReflectionTestUtils.setField(balanceUpdateService, "chunkSize", 0);
+        when(accountRepository.findMinId()).thenReturn(5L);
+        when(accountRepository.findMaxId()).thenReturn(25L);
+
+        balanceUpdateService.increaseBalances();
+
+        verify(accountRepository).accrueInterest(5L, 25L);
+    }
+
+    @Test
+    void increaseBalancesShouldRetryRowsSkippedWhileLockedByTransfers() {
+        ReflectionTestUtils.setField(balanceUpdateService, "chunkSize", 10);
+        when(accountRepository.findMinId()).thenReturn(1L);
+        when(accountRepository.findMaxId()).thenReturn(20L);
+        when(accountRepository.accrueInterestSkipLocked(1L, 10L)).thenReturn(List.of(3L, 7L));
+        when(accountRepository.accrueInterestSkipLocked(11L, 20L)).thenReturn(List.of(12L));
+        when(accountRepository.accrueInterestSkipLocked(List.of(3L, 7L, 12L))).thenReturn(List.of(7L));
+
+        balanceUpdateService.increaseBalances();
+
+        var inOrder = inOrder(accountRepository);
+        assertAll(
+            () -> inOrder.verify(accountRepository).accrueInterestSkipLocked(1L, 10L),
+            () -> inOrder.verify(accountRepository).accrueInterestSkipLocked(11L, 20L),
+            () -> inOrder.verify(accountRepository).accrueInterestSkipLocked(List.of(3L, 7L, 12L)),
+            () -> inOrder.verify(accountRepository).accrueInterest(List.of(7L)),
+            () -> verify(accountRepository, never()).accrueInterest(anyLong(), anyLong())
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldNotRetryWhenNoRowWasSkipped() {
+        when(accountRepository.findMinId()).thenReturn(1L);
+        when(accountRepository.findMaxId()).thenReturn(20L);
+
+        balanceUpdateService.increaseBalances();
+
+        assertAll(
+            () -> verify(accountRepository).accrueInterestSkipLocked(1L, 20L),
+            () -> verify(accountRepository, never()).accrueInterestSkipLocked(anyCollection()),
+            () -> verify(accountRepository, never()).accrueInterest(anyCollection())
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldDoNothingWithoutAccounts() {
+        when(accountRepository.findMinId()).thenReturn(null);
+        when(accountRepository.findMaxId()).thenReturn(null);
+
+        balanceUpdateService.increaseBalances();
+
+        verify(accountRepository, never()).accrueInterest(anyLong(), anyLong());
+    }
+
+    @Test
+    void increaseBalancesShouldUpdateLoadedAccountsInEntityMode() {
+        ReflectionTestUtils.setField(balanceUpdateService, "interestMode", InterestMode.ENTITY);
+        var account = Account.builder().id(1L).balance(Money.of(BigDecimal.valueOf(100))).build();
+        when(accountRepository.findAll()).thenReturn(List.of(account));
+
+        balanceUpdateService.increaseBalances();
+
+        assertAll(
+            () -> assertEquals(Money.of(BigDecimal.valueOf(110)), account.getBalance()),
+            () -> assertNotNull(account.getLastAccruedAt()),
+            () -> verify(accountRepository).saveAll(List.of(account))
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldWalkKeysetChunksAndCompleteCheckpoint() throws SQLException {
+        ReflectionTestUtils.setField(balanceUpdateService, "interestMode", InterestMode.STREAMING);
+        ReflectionTestUtils.setField(balanceUpdateService, "chunkSize", 2);
+        var checkpoint = JobCheckpoint.builder().jobName("interest-accrual").build();
+        when(jobCheckpointRepository.findByJobNameWithPessimisticLock("interest-accrual")).thenReturn(Optional.of(checkpoint));
+        stubChunk(0L, 2, row(1L, 100_00), row(2L, 0));
+        stubChunk(2L, 2);
+        var batch = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+
+        balanceUpdateService.increaseBalances();
+
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        var statement = mock(PreparedStatement.class);
+        batch.getValue().setValues(statement, 0);
+        assertAll(
+            () -> assertEquals(1, batch.getValue().getBatchSize()),
+            () -> verify(statement).setBigDecimal(1, new BigDecimal("110.00")),
+            () -> verify(statement).setLong(2, 1L),
+            () -> assertNull(checkpoint.getLastId()),
+            () -> assertNotNull(checkpoint.getCompletedAt())
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldResumeAfterCheckpoint() {
+        ReflectionTestUtils.setField(balanceUpdateService, "interestMode", InterestMode.STREAMING);
+        var checkpoint = JobCheckpoint.builder().jobName("interest-accrual").lastId(42L).build();
+        when(jobCheckpointRepository.findByJobNameWithPessimisticLock("interest-accrual")).thenReturn(Optional.of(checkpoint));
+        stubChunk(42L, 10000);
+
+        balanceUpdateService.increaseBalances();
+
+        assertAll(
+            () -> verify(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(42L), eq(10000)),
+            () -> verify(jdbcTemplate, never()).query(anyString(), any(RowCallbackHandler.class), eq(0L), anyInt()),
+            () -> verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)),
+            () -> assertNull(checkpoint.getLastId())
+        );
+    }
+
+    @Test
+    void streamingChunkShouldAccrueLikeMoney() {
+        var columns = new BalanceColumns(5);
+        var balances = List.of(100L, 5L, -15L, 190_00L, 1L);
+        for (var i = 0; i < balances.size(); i++) {
+            columns.add(i, balances.get(i));
+        }
+
+        var changed = columns.accrue();
+
+        var expected = new ArrayList<Money>();
+        balances.stream().map(Money::ofMinor).forEach(balance -> {
+            var grown = balance.multiply(110, 100);
+            if (!grown.equals(balance) && grown.compareToRatio(balance, 207, 100) < 0) {
+                expected.add(grown);
+            }
+        });
+        var actual = new ArrayList<Money>();
+        for (var i = 0; i < changed; i++) {
+            actual.add(columns.changedBalance(i));
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void increaseBalancesShouldAccrueOnlyPartitionsNotDoneInTick() {
+        ReflectionTestUtils.setField(balanceUpdateService, "skipLocked", false);
+        ReflectionTestUtils.setField(balanceUpdateService, "interestMode", InterestMode.PARTITIONED);
+        ReflectionTestUtils.setField(balanceUpdateService, "partitions", 2);
+        ReflectionTestUtils.setField(balanceUpdateService, "chunkSize", 10);
+        when(jobCheckpointRepository.currentTimeMillis()).thenReturn(90000L);
+        when(accountRepository.findMaxId()).thenReturn(35L);
+        when(lockRepository.lock(startsWith("interest_partition:"), anyLong(), any()))
+            .thenAnswer(invocation -> Optional.of(new LockHandle(invocation.getArgument(0), "owner")));
+        when(jobCheckpointRepository.markBlockRun("interest-accrual", 3L, 0)).thenReturn(1);
+        when(jobCheckpointRepository.markBlockRun("interest-accrual", 3L, 2)).thenReturn(1);
+        when(jobCheckpointRepository.markBlockRun("interest-accrual", 3L, 1)).thenReturn(0);
+        when(jobCheckpointRepository.markBlockRun("interest-accrual", 3L, 3)).thenReturn(0);
+
+        balanceUpdateService.increaseBalances();
+
+        assertAll(
+            () -> verify(accountRepository).accrueInterest(0L, 9L),
+            () -> verify(accountRepository).accrueInterest(20L, 29L),
+            () -> verify(accountRepository, times(2)).accrueInterest(anyLong(), anyLong()),
+            () -> verify(lockRepository, times(4)).unlock(any())
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldCommitEachBlockBeforeWaitingForLockedRows() {
+        ReflectionTestUtils.setField(balanceUpdateService, "interestMode", InterestMode.PARTITIONED);
+        ReflectionTestUtils.setField(balanceUpdateService, "partitions", 1);
+        ReflectionTestUtils.setField(balanceUpdateService, "chunkSize", 10);
+        when(jobCheckpointRepository.currentTimeMillis()).thenReturn(90000L);
+        when(accountRepository.findMaxId()).thenReturn(15L);
+        when(lockRepository.lock(startsWith("interest_partition:"), anyLong(), any()))
+            .thenAnswer(invocation -> Optional.of(new LockHandle(invocation.getArgument(0), "owner")));
+        when(jobCheckpointRepository.markBlockRun(eq("interest-accrual"), eq(3L), anyInt())).thenReturn(1);
+        when(accountRepository.accrueInterestSkipLocked(0L, 9L)).thenReturn(List.of(3L));
+        when(accountRepository.accrueInterestSkipLocked(10L, 19L)).thenReturn(List.of());
+        when(jobCheckpointRepository.findOldestSkippedTick("interest-accrual")).thenReturn(3L, (Long) null);
+        when(jobCheckpointRepository.lockSkippedAccounts("interest-accrual", 3L, 10000)).thenReturn(List.of(3L));
+        when(accountRepository.accrueInterestSkipLocked(List.of(3L))).thenReturn(List.of(3L));
+        when(jobCheckpointRepository.lockSkippedAccounts("interest-accrual", 3L, List.of(3L))).thenReturn(List.of(3L));
+
+        balanceUpdateService.increaseBalances();
+
+        var inOrder = inOrder(accountRepository, jobCheckpointRepository, transactionManager);
+        assertAll(
+            () -> inOrder.verify(accountRepository).accrueInterestSkipLocked(0L, 9L),
+            () -> inOrder.verify(jobCheckpointRepository).addSkippedAccounts("interest-accrual", 3L, List.of(3L)),
+            () -> inOrder.verify(transactionManager).commit(any()),
+            () -> inOrder.verify(accountRepository).accrueInterestSkipLocked(10L, 19L),
+            () -> inOrder.verify(transactionManager).commit(any()),
+            () -> inOrder.verify(accountRepository).accrueInterestSkipLocked(List.of(3L)),
+            () -> inOrder.verify(transactionManager).commit(any()),
+            () -> inOrder.verify(accountRepository).accrueInterest(List.of(3L)),
+            () -> inOrder.verify(jobCheckpointRepository).deleteSkippedAccounts("interest-accrual", 3L, List.of(3L)),
+            () -> inOrder.verify(transactionManager).commit(any())
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldRetryAccountsSkippedInEarlierTicks() {
+        ReflectionTestUtils.setField(balanceUpdateService, "interestMode", InterestMode.PARTITIONED);
+        ReflectionTestUtils.setField(balanceUpdateService, "partitions", 1);
+        ReflectionTestUtils.setField(balanceUpdateService, "chunkSize", 10);
+        when(jobCheckpointRepository.currentTimeMillis()).thenReturn(90000L);
+        when(accountRepository.findMaxId()).thenReturn(5L);
+        when(lockRepository.lock(startsWith("interest_partition:"), anyLong(), any()))
+            .thenAnswer(invocation -> Optional.of(new LockHandle(invocation.getArgument(0), "owner")));
+        when(jobCheckpointRepository.markBlockRun("interest-accrual", 3L, 0)).thenReturn(0);
+        when(jobCheckpointRepository.findOldestSkippedTick("interest-accrual")).thenReturn(2L, (Long) null);
+        when(jobCheckpointRepository.lockSkippedAccounts("interest-accrual", 2L, 10000)).thenReturn(List.of(4L, 5L));
+        when(accountRepository.accrueInterestSkipLocked(List.of(4L, 5L))).thenReturn(List.of());
+
+        balanceUpdateService.increaseBalances();
+
+        assertAll(
+            () -> verify(accountRepository, never()).accrueInterestSkipLocked(anyLong(), anyLong()),
+            () -> verify(jobCheckpointRepository).deleteSkippedAccounts("interest-accrual", 2L, List.of(4L, 5L)),
+            () -> verify(accountRepository, never()).accrueInterest(anyList())
+        );
+    }
+
+    @Test
+    void increaseBalancesShouldSkipPartitionsLeasedByOtherNodes() {
+        ReflectionTestUtils.setField(balanceUpdateService, "interestMode", InterestMode.PARTITIONED);
+        ReflectionTestUtils.setField(balanceUpdateService, "partitions", 2);
+        when(jobCheckpointRepository.currentTimeMillis()).thenReturn(90000L);
+        when(accountRepository.findMaxId()).thenReturn(35L);
+        when(lockRepository.lock(anyString(), anyLong(), any())).thenReturn(Optional.empty());
+
+        balanceUpdateService.increaseBalances();
+
+        assertAll(
+            () -> verify(jobCheckpointRepository, never()).markBlockRun(anyString(), anyLong(), anyInt()),
+            () -> verify(accountRepository, never()).accrueInterest(anyLong(), anyLong())
+        );
+    }
+
+    private void stubChunk(Long lastId, int limit, ResultSet... rows) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (var row : rows) {
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(lastId), eq(limit));
+    }
+
+    private static ResultSet row(long id, long minorUnits) throws SQLException {
+        var row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(id);
+        when(row.getLong(2)).thenReturn(minorUnits);
+        return row;
+    }
+}
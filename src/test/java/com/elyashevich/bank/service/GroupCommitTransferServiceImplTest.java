@@ -0,0 +1,96 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.model.TransferCommand;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.service.impl.GroupCommitTransferServiceImpl;
+import com.elyashevich.bank.service.impl.TransferServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitTransferServiceImplTest {
+
+    @Mock
+    private TransferServiceImpl transferServiceImpl;
+
+    private GroupCommitTransferServiceImpl transferService;
+
+    private final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @BeforeEach
+    void setUp() {
+        transferService = new GroupCommitTransferServiceImpl(transferServiceImpl);
+        ReflectionTestUtils.setField(transferService, "window", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(transferService, "maxSize", 4);
+        transferService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transferService.stop();
+    }
+
+    @Test
+    void transferShouldCommitConcurrentCallersAsOneBatch() {
+        var callers = IntStream.rangeClosed(1, 4)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> transferService.transfer((long) i, 10L + i, amount)))
+                .toList();
+
+        callers.forEach(CompletableFuture::join);
+
+        verify(transferServiceImpl).transferBatch(argThat(transfers -> transfers.size() == 4));
+        verify(transferServiceImpl, never()).transfer(any(), any(), any());
+    }
+
+    @Test
+    void transferInsideCallersTransactionShouldBypassQueue() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            transferService.transfer(1L, 2L, amount);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        verify(transferServiceImpl).transfer(1L, 2L, amount);
+        verify(transferServiceImpl, never()).transferBatch(anyList());
+    }
+
+    @Test
+    void transferShouldRetryEachTransferAndReportOwnOutcomeWhenGroupFails() {
+        doThrow(new BusinessException("Insufficient funds")).when(transferServiceImpl).transferBatch(anyList());
+        lenient().doThrow(new BusinessException("Insufficient funds")).when(transferServiceImpl).transfer(eq(1L), any(), any());
+
+        var failing = CompletableFuture.runAsync(() -> transferService.transfer(1L, 2L, amount));
+        var succeeding = CompletableFuture.runAsync(() -> transferService.transfer(3L, 4L, amount));
+
+        var exception = assertThrows(Exception.class, failing::join);
+        assertInstanceOf(BusinessException.class, exception.getCause());
+        assertDoesNotThrow(succeeding::join);
+        verify(transferServiceImpl).transfer(3L, 4L, amount);
+    }
+
+    @Test
+    void transferBatchShouldDelegateToTransferService() {
+        var transfers = List.of(new TransferCommand(1L, 2L, amount));
+
+        transferService.transferBatch(transfers);
+
+        verify(transferServiceImpl).transferBatch(transfers);
+    }
+}
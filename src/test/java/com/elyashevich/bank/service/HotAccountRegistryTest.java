@@ -0,0 +1,70 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.repository.AccountRepository;
+import com.elyashevich.bank.service.impl.HotAccountRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotAccountRegistryTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @InjectMocks
+    private HotAccountRegistry hotAccountRegistry;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(hotAccountRegistry, "hotUserIds", Set.of(1L, 2L));
+        ReflectionTestUtils.setField(hotAccountRegistry, "bucketCount", 4);
+    }
+
+    @Test
+    void splitHotAccountsShouldMarkOnlyAccountsWithBuckets() {
+        when(accountRepository.findBucketCountByUserId(1L)).thenReturn(Optional.of(4));
+        when(accountRepository.findBucketCountByUserId(2L)).thenReturn(Optional.empty());
+
+        hotAccountRegistry.splitHotAccounts();
+
+        assertAll(
+            () -> assertTrue(hotAccountRegistry.isHot(1L)),
+            () -> assertFalse(hotAccountRegistry.isHot(2L)),
+            () -> verify(accountRepository).createBuckets(2L, 4)
+        );
+    }
+
+    @Test
+    void splitIfHotShouldSplitAccountCreatedAfterStartup() {
+        when(accountRepository.findBucketCountByUserId(2L)).thenReturn(Optional.of(4));
+
+        assertFalse(hotAccountRegistry.isHot(2L));
+        hotAccountRegistry.splitIfHot(2L);
+
+        assertAll(
+            () -> assertTrue(hotAccountRegistry.isHot(2L)),
+            () -> verify(accountRepository).updateBucketCount(2L, 4)
+        );
+    }
+
+    @Test
+    void splitIfHotShouldIgnoreRegularAccounts() {
+        hotAccountRegistry.splitIfHot(3L);
+
+        assertAll(
+            () -> assertFalse(hotAccountRegistry.isHot(3L)),
+            () -> verifyNoInteractions(accountRepository)
+        );
+    }
+}
@@ -0,0 +1,186 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.entity.IdempotencyRecord;
+import com.elyashevich.bank.domain.model.IdempotencyStatus;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.IdempotencyKeyConflictException;
+import com.elyashevich.bank.repository.IdempotencyRecordRepository;
+import com.elyashevich.bank.service.impl.IdempotencyServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    private static final Long USER_ID = 1L;
+    private static final String KEY = "key-1";
+    private static final String FINGERPRINT = "2:100";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @InjectMocks
+    private IdempotencyServiceImpl idempotencyService;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        transactionTemplate.setTransactionManager(transactionManager);
+    }
+
+    @Test
+    void executeOnceShouldStoreKeyInTransferTransaction() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq(USER_ID), eq(sha256(KEY)), eq(sha256(FINGERPRINT)), eq("COMPLETED"), any()))
+                .thenReturn(1);
+        var inOrder = inOrder(idempotencyRecordRepository, transactionManager, valueOperations);
+
+        var executed = idempotencyService.executeOnce(USER_ID, KEY, FINGERPRINT, executions::incrementAndGet);
+
+        inOrder.verify(idempotencyRecordRepository).insertIfAbsent(any(), any(), any(), any(), any());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(valueOperations).set(anyString(), eq("COMPLETED|" + sha256(FINGERPRINT)), anyLong(), eq(TimeUnit.MILLISECONDS));
+        assertAll(
+                () -> assertTrue(executed),
+                () -> assertEquals(1, executions.get())
+        );
+    }
+
+    @Test
+    void executeOnceShouldReplayCachedRequestWithoutRunningAction() {
+        when(valueOperations.get(anyString())).thenReturn("COMPLETED|" + sha256(FINGERPRINT));
+
+        var executed = idempotencyService.executeOnce(USER_ID, KEY, FINGERPRINT, executions::incrementAndGet);
+
+        assertFalse(executed);
+        assertEquals(0, executions.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void executeOnceShouldReplayFromDatabaseWhenEvictedFromCache() {
+        when(idempotencyRecordRepository.insertIfAbsent(any(), any(), any(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findByUserIdAndKeyHash(eq(USER_ID), anyString()))
+                .thenReturn(Optional.of(completedRecord(FINGERPRINT)));
+
+        var executed = idempotencyService.executeOnce(USER_ID, KEY, FINGERPRINT, executions::incrementAndGet);
+
+        assertFalse(executed);
+        assertEquals(0, executions.get());
+        verify(valueOperations).set(anyString(), eq("COMPLETED|" + sha256(FINGERPRINT)), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void executeOnceShouldThrowWhenKeyReusedForDifferentRequest() {
+        when(valueOperations.get(anyString())).thenReturn("COMPLETED|" + sha256("3:100"));
+
+        assertThrows(IdempotencyKeyConflictException.class,
+                () -> idempotencyService.executeOnce(USER_ID, KEY, FINGERPRINT, executions::incrementAndGet));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void executeOnceShouldRollBackKeyWhenActionFails() {
+        when(idempotencyRecordRepository.insertIfAbsent(any(), any(), any(), any(), any())).thenReturn(1);
+
+        assertThrows(BusinessException.class, () -> idempotencyService.executeOnce(USER_ID, KEY, FINGERPRINT, () -> {
+            throw new BusinessException("Insufficient funds");
+        }));
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(valueOperations, never()).set(anyString(), anyString(), anyLong(), any());
+    }
+
+    @Test
+    void executeOnceShouldNotRetryWhenActionViolatesConstraint() {
+        when(idempotencyRecordRepository.insertIfAbsent(any(), any(), any(), any(), any())).thenReturn(1);
+
+        assertThrows(DataIntegrityViolationException.class, () -> idempotencyService.executeOnce(USER_ID, KEY, FINGERPRINT, () -> {
+            executions.incrementAndGet();
+            throw new DataIntegrityViolationException("check constraint");
+        }));
+
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository, times(1)).insertIfAbsent(any(), any(), any(), any(), any());
+        verify(idempotencyRecordRepository, never()).findByUserIdAndKeyHash(any(), any());
+    }
+
+    @Test
+    void executeOnceShouldGiveUpWhenKeyIsPurgedOnEveryAttempt() {
+        when(idempotencyRecordRepository.insertIfAbsent(any(), any(), any(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findByUserIdAndKeyHash(eq(USER_ID), anyString())).thenReturn(Optional.empty());
+
+        assertThrows(BusinessException.class,
+                () -> idempotencyService.executeOnce(USER_ID, KEY, FINGERPRINT, executions::incrementAndGet));
+
+        assertEquals(0, executions.get());
+        verify(idempotencyRecordRepository, times(3)).insertIfAbsent(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void executeOnceShouldUseDatabaseOnlyWhenRedisIsUnavailable() {
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("Connection refused"));
+        doThrow(new RedisConnectionFailureException("Connection refused"))
+                .when(valueOperations).set(anyString(), anyString(), anyLong(), any());
+        when(idempotencyRecordRepository.insertIfAbsent(any(), any(), any(), any(), any())).thenReturn(1);
+
+        var executed = idempotencyService.executeOnce(USER_ID, KEY, FINGERPRINT, executions::incrementAndGet);
+
+        assertTrue(executed);
+        assertEquals(1, executions.get());
+        verify(transactionManager).commit(any());
+    }
+
+    private static IdempotencyRecord completedRecord(String fingerprint) {
+        return IdempotencyRecord.builder()
+                .userId(USER_ID)
+                .keyHash(sha256(KEY))
+                .requestHash(sha256(fingerprint))
+                .status(IdempotencyStatus.COMPLETED)
+                .build();
+    }
+
+    private static String sha256(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
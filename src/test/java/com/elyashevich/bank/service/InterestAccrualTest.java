@@ -0,0 +1,93 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.entity.Account;
+import com.elyashevich.bank.domain.model.InterestMode;
+import com.elyashevich.bank.domain.model.Money;
+import com.elyashevich.bank.service.impl.InterestAccrual;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterestAccrualTest {
+
+    private final InterestAccrual interestAccrual = new InterestAccrual();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(interestAccrual, "interestMode", InterestMode.LAZY);
+    }
+
+    @Test
+    void accrueShouldCompoundPerElapsedPeriod() {
+        assertEquals(money("121.00"), InterestAccrual.accrue(money("100.00"), money("100.00"), 2));
+        assertEquals(money("133.10"), InterestAccrual.accrue(money("100.00"), money("100.00"), 3));
+    }
+
+    @Test
+    void accrueShouldStopBelowCapOfInitialDeposit() {
+        // 100 * 1.1^7 = 194.87 is the last step below 207, and it stays there however long the account is idle
+        assertEquals(money("194.87"), InterestAccrual.accrue(money("100.00"), money("100.00"), 8));
+        assertEquals(money("194.87"), InterestAccrual.accrue(money("100.00"), money("100.00"), 1_000_000));
+    }
+
+    @Test
+    void accrueShouldCapRelativeToInitialDepositNotCurrentBalance() {
+        assertEquals(money("50.00"), InterestAccrual.accrue(money("50.00"), money("20.00"), 5));
+        assertEquals(money("37.97"), InterestAccrual.accrue(money("10.00"), money("20.00"), 100));
+    }
+
+    @Test
+    void settleShouldKeepUnfinishedPeriod() {
+        var lastAccruedAt = Instant.now().minusSeconds(75);
+        var account = account(money("100.00"), lastAccruedAt);
+
+        interestAccrual.settle(account);
+
+        assertAll(
+                () -> assertEquals(money("121.00"), account.getBalance()),
+                () -> assertEquals(lastAccruedAt.plusSeconds(60), account.getLastAccruedAt())
+        );
+    }
+
+    @Test
+    void previewShouldNotChangePersistentBalance() {
+        var lastAccruedAt = Instant.now().minusSeconds(35);
+        var account = account(money("100.00"), lastAccruedAt);
+
+        interestAccrual.preview(account);
+
+        assertAll(
+                () -> assertEquals(money("100.00"), account.getBalance()),
+                () -> assertEquals(lastAccruedAt, account.getLastAccruedAt()),
+                () -> assertEquals(money("110.00"), account.getTotalBalance())
+        );
+    }
+
+    @Test
+    void settleShouldDoNothingOutsideLazyMode() {
+        ReflectionTestUtils.setField(interestAccrual, "interestMode", InterestMode.SET);
+        var account = account(money("100.00"), Instant.now().minusSeconds(3600));
+
+        interestAccrual.settle(account);
+
+        assertEquals(money("100.00"), account.getBalance());
+    }
+
+    private static Account account(Money balance, Instant lastAccruedAt) {
+        return Account.builder()
+                .id(1L)
+                .balance(balance)
+                .initialDeposit(balance)
+                .lastAccruedAt(lastAccruedAt)
+                .build();
+    }
+
+    private static Money money(String amount) {
+        return Money.of(new BigDecimal(amount));
+    }
+}
@@ -0,0 +1,69 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.service.impl.LocalRateLimitServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimitServiceImplTest {
+
+    private LocalRateLimitServiceImpl rateLimitService;
+
+    @BeforeEach
+    void setUp() {
+        rateLimitService = new LocalRateLimitServiceImpl();
+        ReflectionTestUtils.setField(rateLimitService, "capacity", 5L);
+        // one token per second, so no token is refilled while a test runs
+        ReflectionTestUtils.setField(rateLimitService, "refillRate", 1L);
+    }
+
+    @Test
+    void tryAcquireShouldAllowBurstUpToCapacity() {
+        var acquired = IntStream.range(0, 5).allMatch(i -> rateLimitService.tryAcquire(1L, 1));
+
+        assertAll(
+            () -> assertTrue(acquired),
+            () -> assertFalse(rateLimitService.tryAcquire(1L, 1))
+        );
+    }
+
+    @Test
+    void tryAcquireShouldKeepBucketsPerUser() {
+        assertTrue(rateLimitService.tryAcquire(1L, 5));
+
+        assertAll(
+            () -> assertFalse(rateLimitService.tryAcquire(1L, 1)),
+            () -> assertTrue(rateLimitService.tryAcquire(2L, 1))
+        );
+    }
+
+    @Test
+    void tryAcquireShouldTakeNothingWhenPermitsExceedTokens() {
+        assertTrue(rateLimitService.tryAcquire(1L, 3));
+
+        assertAll(
+            () -> assertFalse(rateLimitService.tryAcquire(1L, 3)),
+            () -> assertTrue(rateLimitService.tryAcquire(1L, 2))
+        );
+    }
+
+    @Test
+    void tryAcquireShouldRejectBatchLargerThanCapacity() {
+        assertAll(
+            () -> assertFalse(rateLimitService.tryAcquire(1L, 1000)),
+            () -> assertFalse(rateLimitService.tryAcquire(1L, 6)),
+            () -> assertTrue(rateLimitService.tryAcquire(1L, 5))
+        );
+    }
+
+    @Test
+    void tryAcquireShouldAllowEverythingWhenDisabled() {
+        ReflectionTestUtils.setField(rateLimitService, "enabled", false);
+
+        assertTrue(IntStream.range(0, 100).allMatch(i -> rateLimitService.tryAcquire(1L, 1)));
+    }
+}
@@ -0,0 +1,136 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.model.TransferCommand;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.repository.AccountRepository;
+import com.elyashevich.bank.service.impl.InterestAccrual;
+import com.elyashevich.bank.service.impl.ShardedTransferServiceImpl;
+import com.elyashevich.bank.service.impl.TransferServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShardedTransferServiceImplTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private TransferServiceImpl transferServiceImpl;
+
+    private ShardedTransferServiceImpl transferService;
+
+    private final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @BeforeEach
+    void setUp() {
+        transferService = new ShardedTransferServiceImpl(accountRepository, ledgerService,
+                new TransactionTemplate(transactionManager), transferServiceImpl, new InterestAccrual());
+        ReflectionTestUtils.setField(transferService, "shardCount", 2);
+        transferService.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transferService.stop();
+    }
+
+    @Test
+    void transferWithinShardShouldUpdateBothAccountsInOneStep() {
+        when(accountRepository.debitIfSufficientFunds(1L, amount)).thenReturn(1);
+        when(accountRepository.creditWithinMaxBalance(3L, amount)).thenReturn(1);
+
+        transferService.transfer(1L, 3L, amount);
+
+        verify(ledgerService).record(List.of(new TransferCommand(1L, 3L, amount)), true);
+        verify(ledgerService, never()).recordHandOff(any());
+    }
+
+    @Test
+    void transferInsideCallersTransactionShouldApplyAcrossShardsWithoutHandOff() {
+        when(accountRepository.debitIfSufficientFunds(1L, amount)).thenReturn(1);
+        when(accountRepository.creditWithinMaxBalance(2L, amount)).thenReturn(1);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            transferService.transfer(1L, 2L, amount);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        verify(ledgerService).record(List.of(new TransferCommand(1L, 2L, amount)), true);
+        verify(ledgerService, never()).recordHandOff(any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void transferAcrossShardsShouldHandOffCreditThroughLedger() {
+        var transferId = UUID.randomUUID();
+        when(accountRepository.debitIfSufficientFunds(1L, amount)).thenReturn(1);
+        when(ledgerService.recordHandOff(new TransferCommand(1L, 2L, amount))).thenReturn(transferId);
+        when(ledgerService.claimCredit(transferId)).thenReturn(true);
+        when(accountRepository.creditWithinMaxBalance(2L, amount)).thenReturn(1);
+
+        transferService.transfer(1L, 2L, amount);
+
+        verify(ledgerService, never()).cancelHandOff(any(), any(), any());
+        verify(accountRepository, never()).credit(any(), any());
+    }
+
+    @Test
+    void transferAcrossShardsShouldRefundSenderWhenCreditFails() {
+        var transferId = UUID.randomUUID();
+        when(accountRepository.debitIfSufficientFunds(1L, amount)).thenReturn(1);
+        when(ledgerService.recordHandOff(any())).thenReturn(transferId);
+        when(ledgerService.claimCredit(transferId)).thenReturn(true);
+        when(accountRepository.creditWithinMaxBalance(2L, amount)).thenReturn(0);
+        when(accountRepository.findExistingUserIds(List.of(2L))).thenReturn(List.of(2L));
+        when(ledgerService.cancelHandOff(transferId, 1L, amount)).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> transferService.transfer(1L, 2L, amount));
+
+        verify(accountRepository).credit(1L, amount);
+    }
+
+    @Test
+    void transferShouldNotHandOffWhenInsufficientFunds() {
+        when(accountRepository.debitIfSufficientFunds(1L, amount)).thenReturn(0);
+        when(accountRepository.findExistingUserIds(List.of(1L))).thenReturn(List.of(1L));
+
+        assertThrows(BusinessException.class, () -> transferService.transfer(1L, 2L, amount));
+
+        verifyNoInteractions(ledgerService);
+    }
+
+    @Test
+    void transferBatchShouldDelegateToLockingImplementation() {
+        var transfers = List.of(new TransferCommand(1L, 2L, amount));
+
+        transferService.transferBatch(transfers);
+
+        verify(transferServiceImpl).transferBatch(transfers);
+    }
+}
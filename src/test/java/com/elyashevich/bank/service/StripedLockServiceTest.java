@@ -0,0 +1,72 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.service.impl.StripedLockService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedLockServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StripedLockService stripedLockService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        stripedLockService = new StripedLockService(8, meterRegistry);
+    }
+
+    @Test
+    void lockShouldBlockOtherThreadsUntilUnlocked() {
+        assertTrue(stripedLockService.lock(List.of(1L, 2L), 100, TimeUnit.MILLISECONDS));
+
+        assertFalse(lockFromAnotherThread(List.of(2L)));
+
+        stripedLockService.unlock(List.of(1L, 2L));
+
+        assertTrue(lockFromAnotherThread(List.of(2L)));
+    }
+
+    @Test
+    void lockShouldBeReentrantForSameThread() {
+        assertTrue(stripedLockService.lock(List.of(1L), 100, TimeUnit.MILLISECONDS));
+        assertTrue(stripedLockService.lock(List.of(1L, 3L), 100, TimeUnit.MILLISECONDS));
+
+        stripedLockService.unlock(List.of(1L, 3L));
+        assertFalse(lockFromAnotherThread(List.of(1L)));
+
+        stripedLockService.unlock(List.of(1L));
+        assertTrue(lockFromAnotherThread(List.of(1L)));
+    }
+
+    @Test
+    void lockShouldRecordWaitTimePerStripe() {
+        stripedLockService.lock(List.of(1L), 100, TimeUnit.MILLISECONDS);
+        stripedLockService.unlock(List.of(1L));
+
+        var recorded = meterRegistry.find("bank.lock.local.wait").timers().stream()
+                .mapToLong(timer -> timer.count())
+                .sum();
+
+        assertAll(
+                () -> assertEquals(8, meterRegistry.find("bank.lock.local.wait").timers().size()),
+                () -> assertEquals(1, recorded)
+        );
+    }
+
+    private boolean lockFromAnotherThread(List<Long> keys) {
+        return CompletableFuture.supplyAsync(() -> {
+            var locked = stripedLockService.lock(keys, 50, TimeUnit.MILLISECONDS);
+            if (locked) {
+                stripedLockService.unlock(keys);
+            }
+            return locked;
+        }).join();
+    }
+}
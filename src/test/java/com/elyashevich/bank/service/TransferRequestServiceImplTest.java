@@ -0,0 +1,84 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.entity.TransferRequest;
+import com.elyashevich.bank.domain.model.TransferRequestStatus;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.ResourceNotFoundException;
+import com.elyashevich.bank.exception.TransferQueueFullException;
+import com.elyashevich.bank.repository.TransferRequestRepository;
+import com.elyashevich.bank.repository.UserRepository;
+import com.elyashevich.bank.service.impl.TransferRequestServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferRequestServiceImplTest {
+
+    @Mock
+    private TransferRequestRepository transferRequestRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private TransferRequestServiceImpl transferRequestService;
+
+    private final BigDecimal amount = BigDecimal.valueOf(100);
+
+    @Test
+    void submitShouldStorePendingRequest() {
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(transferRequestRepository.hasAtLeast("PENDING", 10000)).thenReturn(false);
+        when(transferRequestRepository.save(any(TransferRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var request = transferRequestService.submit(1L, 2L, amount);
+
+        assertAll(
+                () -> assertEquals(TransferRequestStatus.PENDING, request.getStatus()),
+                () -> assertEquals(1L, request.getFromUserId()),
+                () -> assertEquals(2L, request.getToUserId()),
+                () -> assertEquals(0, request.getAttempts())
+        );
+    }
+
+    @Test
+    void submitShouldThrowWhenQueueIsFull() {
+        when(userRepository.existsById(2L)).thenReturn(true);
+        when(transferRequestRepository.hasAtLeast("PENDING", 10000)).thenReturn(true);
+
+        assertThrows(TransferQueueFullException.class, () -> transferRequestService.submit(1L, 2L, amount));
+        verify(transferRequestRepository, never()).save(any());
+    }
+
+    @Test
+    void submitShouldThrowWhenRecipientNotFound() {
+        when(userRepository.existsById(2L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> transferRequestService.submit(1L, 2L, amount));
+    }
+
+    @Test
+    void submitShouldThrowWhenSameAccount() {
+        assertThrows(BusinessException.class, () -> transferRequestService.submit(1L, 1L, amount));
+        verifyNoInteractions(transferRequestRepository);
+    }
+
+    @Test
+    void findByIdShouldThrowForOtherUsersRequest() {
+        var id = UUID.randomUUID();
+        when(transferRequestRepository.findByIdAndFromUserId(id, 1L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> transferRequestService.findById(id, 1L));
+    }
+}
@@ -0,0 +1,117 @@
+package com.elyashevich.bank.service;
+
+import com.elyashevich.bank.domain.entity.TransferRequest;
+import com.elyashevich.bank.domain.model.TransferRequestStatus;
+import com.elyashevich.bank.exception.BusinessException;
+import com.elyashevich.bank.exception.TransferConflictException;
+import com.elyashevich.bank.repository.TransferRequestRepository;
+import com.elyashevich.bank.service.impl.TransferRequestWorker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferRequestWorkerTest {
+
+    @Mock
+    private TransferRequestRepository transferRequestRepository;
+
+    @Mock
+    private TransferService transferService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransferRequestWorker worker;
+    private TransferRequest request;
+
+    @BeforeEach
+    void setUp() {
+        worker = new TransferRequestWorker(transferRequestRepository, transferService, new TransactionTemplate(transactionManager));
+        worker.start();
+
+        request = TransferRequest.builder()
+                .id(UUID.randomUUID())
+                .fromUserId(1L)
+                .toUserId(2L)
+                .amount(BigDecimal.valueOf(100))
+                .status(TransferRequestStatus.PENDING)
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .build();
+        lenient().when(transferRequestRepository.findAllForProcessing(eq(TransferRequestStatus.PENDING), any()))
+                .thenReturn(List.of(request));
+    }
+
+    @Test
+    void releaseStaleShouldFailRequestsOutOfAttemptsAndRequeueTheRest() {
+        worker.releaseStale();
+
+        var inOrder = inOrder(transferRequestRepository);
+        inOrder.verify(transferRequestRepository).failStale(any(), eq(3), eq("Processing timed out"), any());
+        inOrder.verify(transferRequestRepository).releaseStale(any(), eq(3), any());
+    }
+
+    @Test
+    void pollShouldTransferAndCompleteClaimedRequest() throws InterruptedException {
+        when(transferRequestRepository.markCompleted(eq(request.getId()), eq(1), any())).thenReturn(1);
+
+        worker.poll();
+        worker.stop();
+
+        assertEquals(TransferRequestStatus.PROCESSING, request.getStatus());
+        verify(transferService).transfer(1L, 2L, BigDecimal.valueOf(100));
+        verify(transferRequestRepository, never()).markUnsuccessful(any(), anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void pollShouldReturnRequestToQueueWhenTransferFails() throws InterruptedException {
+        when(transferRequestRepository.markCompleted(eq(request.getId()), eq(1), any())).thenReturn(1);
+        doThrow(new TransferConflictException("Could not acquire locks for transfer operation"))
+                .when(transferService).transfer(any(), any(), any());
+
+        worker.poll();
+        worker.stop();
+
+        verify(transferRequestRepository).markUnsuccessful(eq(request.getId()), eq(1), eq(TransferRequestStatus.PENDING),
+                eq("Could not acquire locks for transfer operation"), any());
+    }
+
+    @Test
+    void pollShouldFailWithoutRetryWhenInsufficientFunds() throws InterruptedException {
+        when(transferRequestRepository.markCompleted(eq(request.getId()), eq(1), any())).thenReturn(1);
+        doThrow(new BusinessException("User with id: '1' can not transfer '100'"))
+                .when(transferService).transfer(any(), any(), any());
+
+        worker.poll();
+        worker.stop();
+
+        verify(transferRequestRepository).markUnsuccessful(eq(request.getId()), eq(1), eq(TransferRequestStatus.FAILED),
+                eq("User with id: '1' can not transfer '100'"), any());
+    }
+
+    @Test
+    void pollShouldSkipTransferWhenRequestReclaimedByAnotherWorker() throws InterruptedException {
+        when(transferRequestRepository.markCompleted(eq(request.getId()), eq(1), any())).thenReturn(0);
+
+        worker.poll();
+        worker.stop();
+
+        verifyNoInteractions(transferService);
+    }
+}
@@ -2,12 +2,21 @@ package com.elyashevich.bank.service;
 
 import com.elyashevich.bank.domain.entity.Account;
 import com.elyashevich.bank.domain.entity.User;
+import com.elyashevich.bank.domain.model.InterestMode;
+import com.elyashevich.bank.domain.model.LockHandle;
+import com.elyashevich.bank.domain.model.Money;
+import com.elyashevich.bank.domain.model.TransferCommand;
+import com.elyashevich.bank.domain.model.TransferMode;
 import com.elyashevich.bank.exception.BusinessException;
 import com.elyashevich.bank.exception.ResourceNotFoundException;
 import com.elyashevich.bank.repository.AccountRepository;
-import com.elyashevich.bank.repository.RedisLockRepository;
-import com.elyashevich.bank.repository.UserRepository;
+import com.elyashevich.bank.repository.LockRepository;
+import com.elyashevich.bank.service.impl.HotAccountRegistry;
+import com.elyashevich.bank.service.impl.InterestAccrual;
+import com.elyashevich.bank.service.impl.StripedLockService;
+import com.elyashevich.bank.service.impl.TransferMetrics;
 import com.elyashevich.bank.service.impl.TransferServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,11 +24,20 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
@@ -33,10 +51,27 @@ class TransferServiceImplTest {
     private AccountRepository accountRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private LockRepository lockRepository;
 
     @Mock
-    private RedisLockRepository redisLockRepository;
+    private LedgerService ledgerService;
+
+    @Mock
+    private HotAccountRegistry hotAccountRegistry;
+
+    @Spy
+    private StripedLockService stripedLockService = new StripedLockService(4, new SimpleMeterRegistry());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private TransferMetrics transferMetrics = new TransferMetrics(meterRegistry);
+
+    @Spy
+    private InterestAccrual interestAccrual = new InterestAccrual();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     @InjectMocks
     private TransferServiceImpl transferService;
@@ -54,46 +89,90 @@ class TransferServiceImplTest {
         fromAccount = new Account();
         fromAccount.setId(1L);
         fromAccount.setUser(fromUser);
-        fromAccount.setBalance(BigDecimal.valueOf(500));
+        fromAccount.setBalance(Money.of(BigDecimal.valueOf(500)));
 
         User toUser = new User();
         toUser.setId(toUserId);
         toAccount = new Account();
         toAccount.setId(2L);
         toAccount.setUser(toUser);
-        toAccount.setBalance(BigDecimal.valueOf(200));
+        toAccount.setBalance(Money.of(BigDecimal.valueOf(200)));
     }
 
     @Test
     @Transactional
     void transferShouldCompleteSuccessfully() {
         // Mock dependencies
-        when(redisLockRepository.lock(anyString(), anyLong(), any())).thenReturn(true);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
         when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
         when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
-        when(userRepository.existsById(fromUserId)).thenReturn(true);
-        when(userRepository.existsById(toUserId)).thenReturn(true);
 
         // Execute
         transferService.transfer(fromUserId, toUserId, amount);
 
         // Verify
         assertAll(
-            () -> assertEquals(BigDecimal.valueOf(400), fromAccount.getBalance()),
-            () -> assertEquals(BigDecimal.valueOf(300), toAccount.getBalance()),
+            () -> assertEquals(Money.of(BigDecimal.valueOf(400)), fromAccount.getBalance()),
+            () -> assertEquals(Money.of(BigDecimal.valueOf(300)), toAccount.getBalance()),
             () -> verify(accountRepository, times(2)).save(any()),
-            () -> verify(redisLockRepository).unlock("account_lock:" + fromUserId),
-            () -> verify(redisLockRepository).unlock("account_lock:" + toUserId)
+            () -> verify(lockRepository).unlockAll(lockHandles(List.of("account_lock:" + fromUserId, "account_lock:" + toUserId)))
+        );
+    }
+
+    @Test
+    void transferShouldRecordPhaseTimers() {
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        assertAll(
+            () -> assertEquals(1, meterRegistry.get("bank.transfer").tags("mode", "pessimistic", "outcome", "success").timer().count()),
+            () -> assertEquals(1, phaseCount("validation", "success")),
+            () -> assertEquals(1, phaseCount("lock", "success")),
+            () -> assertEquals(2, phaseCount("fetch", "success")),
+            () -> assertEquals(1, phaseCount("conditions", "success")),
+            () -> assertEquals(2, phaseCount("save", "success")),
+            () -> assertEquals(1, phaseCount("unlock", "success"))
+        );
+    }
+
+    @Test
+    void transferShouldTagRejectedTransfersByOutcome() {
+        fromAccount.setBalance(Money.of(BigDecimal.valueOf(50)));
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
+
+        assertThrows(BusinessException.class,
+            () -> transferService.transfer(fromUserId, toUserId, amount));
+
+        assertAll(
+            () -> assertEquals(1, meterRegistry.get("bank.transfer").tags("mode", "pessimistic", "outcome", "rejected").timer().count()),
+            () -> assertEquals(1, phaseCount("conditions", "failure")),
+            () -> assertEquals(0, phaseCount("save", "success"))
         );
     }
 
+    private long phaseCount(String phase, String outcome) {
+        return meterRegistry.get("bank.transfer.phase").tags("phase", phase, "outcome", outcome).timer().count();
+    }
+
     @Test
     void transferShouldThrowWhenToUserNotFound() {
-        when(userRepository.existsById(fromUserId)).thenReturn(true);
-        when(userRepository.existsById(toUserId)).thenReturn(false);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.empty());
 
         assertThrows(ResourceNotFoundException.class,
             () -> transferService.transfer(fromUserId, toUserId, amount));
+
+        verify(accountRepository, never()).save(any());
     }
 
     @Test
@@ -119,22 +198,33 @@ class TransferServiceImplTest {
 
     @Test
     void transferShouldThrowWhenLockNotAcquired() {
-        when(redisLockRepository.lock(anyString(), anyLong(), any())).thenReturn(false);
-        when(userRepository.existsById(fromUserId)).thenReturn(true);
-        when(userRepository.existsById(toUserId)).thenReturn(true);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any())).thenReturn(List.of());
 
         assertThrows(BusinessException.class,
             () -> transferService.transfer(fromUserId, toUserId, amount));
     }
 
+    @Test
+    void transferWithLocalLockBackendShouldSkipPreStriping() {
+        ReflectionTestUtils.setField(transferService, "lockBackend", "local");
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        verify(stripedLockService, never()).lock(any(), anyLong(), any());
+        verify(stripedLockService, never()).unlock(any());
+    }
+
     @Test
     void transferShouldThrowWhenInsufficientFunds() {
-        fromAccount.setBalance(BigDecimal.valueOf(50));
-        when(redisLockRepository.lock(anyString(), anyLong(), any())).thenReturn(true);
+        fromAccount.setBalance(Money.of(BigDecimal.valueOf(50)));
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
         when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
         when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
-        when(userRepository.existsById(fromUserId)).thenReturn(true);
-        when(userRepository.existsById(toUserId)).thenReturn(true);
 
         assertThrows(BusinessException.class,
             () -> transferService.transfer(fromUserId, toUserId, amount));
@@ -142,61 +232,449 @@ class TransferServiceImplTest {
 
     @Test
     void transferShouldThrowWhenExceedsMaxBalance() {
-        toAccount.setBalance(BigDecimal.valueOf(1000));
-        when(redisLockRepository.lock(anyString(), anyLong(), any())).thenReturn(true);
+        toAccount.setBalance(Money.of(BigDecimal.valueOf(1000)));
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
         when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
         when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
-        when(userRepository.existsById(fromUserId)).thenReturn(true);
-        when(userRepository.existsById(toUserId)).thenReturn(true);
 
         assertThrows(BusinessException.class,
             () -> transferService.transfer(fromUserId, toUserId, BigDecimal.valueOf(1000)));
     }
 
+    @Test
+    void transferInLazyInterestModeShouldSettleInterestBeforeDebit() {
+        ReflectionTestUtils.setField(interestAccrual, "interestMode", InterestMode.LAZY);
+        fromAccount.setInitialDeposit(Money.of(BigDecimal.valueOf(500)));
+        fromAccount.setLastAccruedAt(Instant.now().minusSeconds(65));
+        toAccount.setInitialDeposit(Money.of(BigDecimal.valueOf(200)));
+        toAccount.setLastAccruedAt(Instant.now());
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        assertAll(
+            () -> assertEquals(Money.of(new BigDecimal("505.00")), fromAccount.getBalance()),
+            () -> assertEquals(Money.of(BigDecimal.valueOf(300)), toAccount.getBalance())
+        );
+    }
+
+    @Test
+    void lazyInterestShouldRejectGuardedUpdateModes() {
+        ReflectionTestUtils.setField(interestAccrual, "interestMode", InterestMode.LAZY);
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.ATOMIC);
+
+        assertThrows(IllegalStateException.class, () -> transferService.checkInterestMode());
+    }
+
     @Test
     void transferShouldUnlockEvenOnFailure() {
-        when(redisLockRepository.lock(anyString(), anyLong(), any())).thenReturn(true);
-        when(userRepository.existsById(fromUserId)).thenReturn(true);
-        when(userRepository.existsById(toUserId)).thenReturn(true);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
         when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenThrow(new RuntimeException("DB Error"));
 
         assertThrows(RuntimeException.class,
             () -> transferService.transfer(fromUserId, toUserId, amount));
 
-        verify(redisLockRepository).unlock("account_lock:" + fromUserId);
-        verify(redisLockRepository).unlock("account_lock:" + toUserId);
+        verify(lockRepository).unlockAll(lockHandles(List.of("account_lock:" + fromUserId, "account_lock:" + toUserId)));
+    }
+
+    @Test
+    void transferToHotAccountShouldCreditBucketUnderSharedLock() {
+        toAccount.setBucketCount(4);
+        when(hotAccountRegistry.isHot(toUserId)).thenReturn(true);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdWithSharedLock(toUserId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.sumBuckets(toAccount.getId())).thenReturn(BigDecimal.valueOf(50));
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        assertAll(
+            () -> assertEquals(Money.of(BigDecimal.valueOf(400)), fromAccount.getBalance()),
+            () -> assertEquals(Money.of(BigDecimal.valueOf(200)), toAccount.getBalance()),
+            () -> verify(accountRepository).save(fromAccount),
+            () -> verify(accountRepository, never()).save(toAccount),
+            () -> verify(accountRepository).creditBucket(eq(toAccount.getId()), intThat(bucket -> bucket >= 0 && bucket < 4), eq(amount)),
+            () -> verify(lockRepository).tryLockAll(eq(List.of("account_lock:" + fromUserId)), anyLong(), anyLong(), any())
+        );
+    }
+
+    @Test
+    void transferFromBucketedAccountShouldDrainBucketsFirst() {
+        fromAccount.setBalance(Money.of(BigDecimal.valueOf(50)));
+        fromAccount.setBucketCount(4);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.sumBuckets(fromAccount.getId())).thenReturn(BigDecimal.valueOf(150));
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        assertAll(
+            () -> assertEquals(Money.of(BigDecimal.valueOf(100)), fromAccount.getBalance()),
+            () -> verify(accountRepository).clearBuckets(fromAccount.getId()),
+            () -> verify(accountRepository, never()).sumBuckets(toAccount.getId())
+        );
+    }
+
+    @Test
+    void optimisticTransferShouldReadWithoutLocks() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.OPTIMISTIC);
+        when(accountRepository.findByUserId(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserId(toUserId)).thenReturn(Optional.of(toAccount));
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        assertAll(
+            () -> assertEquals(Money.of(BigDecimal.valueOf(400)), fromAccount.getBalance()),
+            () -> assertEquals(Money.of(BigDecimal.valueOf(300)), toAccount.getBalance()),
+            () -> verify(accountRepository).saveAll(List.of(fromAccount, toAccount)),
+            () -> verify(accountRepository, never()).findByUserIdWithPessimisticLock(any()),
+            () -> verifyNoInteractions(lockRepository)
+        );
+    }
+
+    @Test
+    void optimisticTransferShouldRetryAfterConflict() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(transferService, "optimisticBackoff", 1L);
+        when(accountRepository.findByUserId(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserId(toUserId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.saveAll(any()))
+            .thenThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L))
+            .thenReturn(List.of());
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        verify(accountRepository, times(2)).saveAll(any());
+        verify(ledgerService).record(List.of(new TransferCommand(fromUserId, toUserId, amount)), true);
+    }
+
+    @Test
+    void optimisticTransferShouldGiveUpAfterMaxAttempts() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(transferService, "optimisticBackoff", 1L);
+        ReflectionTestUtils.setField(transferService, "optimisticMaxAttempts", 3);
+        when(accountRepository.findByUserId(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserId(toUserId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.saveAll(any())).thenThrow(new ObjectOptimisticLockingFailureException(Account.class, 1L));
+
+        assertThrows(BusinessException.class,
+            () -> transferService.transfer(fromUserId, toUserId, amount));
+
+        verify(accountRepository, times(3)).saveAll(any());
+    }
+
+    @Test
+    void optimisticTransferShouldFallBackToLockingForBucketedAccounts() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.OPTIMISTIC);
+        toAccount.setBucketCount(4);
+        when(accountRepository.findByUserId(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserId(toUserId)).thenReturn(Optional.of(toAccount));
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findByUserIdWithPessimisticLock(fromUserId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findByUserIdWithPessimisticLock(toUserId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.sumBuckets(toAccount.getId())).thenReturn(BigDecimal.ZERO);
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        verify(accountRepository, never()).saveAll(any());
+        verify(accountRepository, times(2)).save(any());
+    }
+
+    @Test
+    void atomicTransferShouldUseConditionalUpdatesOnly() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.ATOMIC);
+        when(accountRepository.debitIfSufficientFunds(fromUserId, amount)).thenReturn(1);
+        when(accountRepository.creditWithinMaxBalance(toUserId, amount)).thenReturn(1);
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        verify(accountRepository, never()).findByUserIdWithPessimisticLock(any());
+        verify(accountRepository, never()).save(any());
+        verifyNoInteractions(lockRepository);
+        verify(ledgerService).record(List.of(new TransferCommand(fromUserId, toUserId, amount)), true);
+    }
+
+    @Test
+    void ledgerTransferShouldAppendEntriesWithoutTouchingAccounts() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.LEDGER);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(ledgerService.findAvailableBalances(any()))
+            .thenReturn(Map.of(fromUserId, BigDecimal.valueOf(500), toUserId, BigDecimal.valueOf(200)));
+
+        transferService.transfer(fromUserId, toUserId, amount);
+
+        verify(ledgerService).record(List.of(new TransferCommand(fromUserId, toUserId, amount)), false);
+        verify(accountRepository, never()).save(any());
+        verify(accountRepository, never()).debitIfSufficientFunds(any(), any());
+    }
+
+    @Test
+    void ledgerTransferShouldCheckPendingEntriesInAvailableBalance() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.LEDGER);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(ledgerService.findAvailableBalances(any()))
+            .thenReturn(Map.of(fromUserId, BigDecimal.valueOf(50), toUserId, BigDecimal.valueOf(200)));
+
+        assertThrows(BusinessException.class,
+            () -> transferService.transfer(fromUserId, toUserId, amount));
+
+        verify(ledgerService, never()).record(any(), anyBoolean());
+        verify(lockRepository).unlockAll(any());
+    }
+
+    @Test
+    void ledgerBatchShouldTrackBalancesAcrossTransfers() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.LEDGER);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(ledgerService.findAvailableBalances(any()))
+            .thenReturn(Map.of(fromUserId, BigDecimal.valueOf(150), toUserId, BigDecimal.valueOf(200)));
+
+        assertThrows(BusinessException.class, () -> transferService.transferBatch(List.of(
+            new TransferCommand(fromUserId, toUserId, amount),
+            new TransferCommand(fromUserId, toUserId, amount)
+        )));
+
+        verify(ledgerService, never()).record(any(), anyBoolean());
+    }
+
+    @Test
+    void atomicTransferShouldThrowWhenDebitGuardFails() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.ATOMIC);
+        when(accountRepository.debitIfSufficientFunds(fromUserId, amount)).thenReturn(0);
+        when(accountRepository.findExistingUserIds(List.of(fromUserId))).thenReturn(List.of(fromUserId));
+
+        assertThrows(BusinessException.class,
+            () -> transferService.transfer(fromUserId, toUserId, amount));
+
+        verify(accountRepository, never()).creditWithinMaxBalance(any(), any());
+    }
+
+    @Test
+    void atomicTransferShouldThrowWhenCreditGuardFails() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.ATOMIC);
+        when(accountRepository.debitIfSufficientFunds(fromUserId, amount)).thenReturn(1);
+        when(accountRepository.creditWithinMaxBalance(toUserId, amount)).thenReturn(0);
+        when(accountRepository.findExistingUserIds(List.of(toUserId))).thenReturn(List.of(toUserId));
+
+        assertThrows(BusinessException.class,
+            () -> transferService.transfer(fromUserId, toUserId, amount));
+    }
+
+    @Test
+    void atomicTransferShouldThrowNotFoundWhenReceiverIsMissing() {
+        ReflectionTestUtils.setField(transferService, "transferMode", TransferMode.ATOMIC);
+        when(accountRepository.debitIfSufficientFunds(fromUserId, amount)).thenReturn(1);
+        when(accountRepository.creditWithinMaxBalance(toUserId, amount)).thenReturn(0);
+
+        assertThrows(ResourceNotFoundException.class,
+            () -> transferService.transfer(fromUserId, toUserId, amount));
+
+        verify(ledgerService, never()).record(any(), anyBoolean());
+    }
+
+    @Test
+    void transferBatchShouldApplyAllTransfersInOneLookup() {
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findAllByUserIdsWithPessimisticLock(any())).thenReturn(List.of(fromAccount, toAccount));
+
+        transferService.transferBatch(List.of(
+            new TransferCommand(fromUserId, toUserId, amount),
+            new TransferCommand(fromUserId, toUserId, BigDecimal.valueOf(50))
+        ));
+
+        assertAll(
+            () -> assertEquals(Money.of(BigDecimal.valueOf(350)), fromAccount.getBalance()),
+            () -> assertEquals(Money.of(BigDecimal.valueOf(350)), toAccount.getBalance()),
+            () -> verify(lockRepository, times(1)).tryLockAll(anyList(), anyLong(), anyLong(), any()),
+            () -> verify(accountRepository).saveAll(any()),
+            () -> verify(ledgerService).record(anyList(), eq(true)),
+            () -> verify(lockRepository).unlockAll(lockHandles(List.of("account_lock:" + fromUserId, "account_lock:" + toUserId)))
+        );
+    }
+
+    @Test
+    void transferBatchOverManyAccountsShouldSkipPreStriping() {
+        var thirdAccount = new Account();
+        thirdAccount.setId(3L);
+        var thirdUser = new User();
+        thirdUser.setId(3L);
+        thirdAccount.setUser(thirdUser);
+        thirdAccount.setBalance(Money.of(BigDecimal.valueOf(100)));
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findAllByUserIdsWithPessimisticLock(any())).thenReturn(List.of(fromAccount, toAccount, thirdAccount));
+
+        transferService.transferBatch(List.of(
+            new TransferCommand(fromUserId, toUserId, amount),
+            new TransferCommand(toUserId, 3L, BigDecimal.valueOf(50))
+        ));
+
+        verify(stripedLockService, never()).lock(any(), anyLong(), any());
+        verify(lockRepository).tryLockAll(anyList(), longThat(waitTime -> waitTime > 0 && waitTime <= 2000), anyLong(), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void transferBatchToHotAccountShouldCreditBucketUnderSharedLock() {
+        toAccount.setBucketCount(4);
+        when(hotAccountRegistry.isHot(toUserId)).thenReturn(true);
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findAllByUserIdsWithPessimisticLock(Set.of(fromUserId))).thenReturn(List.of(fromAccount));
+        when(accountRepository.findByUserIdWithSharedLock(toUserId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.sumBuckets(toAccount.getId())).thenReturn(BigDecimal.valueOf(50));
+
+        transferService.transferBatch(List.of(
+            new TransferCommand(fromUserId, toUserId, amount),
+            new TransferCommand(fromUserId, toUserId, BigDecimal.valueOf(50))
+        ));
+
+        assertAll(
+            () -> assertEquals(Money.of(BigDecimal.valueOf(350)), fromAccount.getBalance()),
+            () -> assertEquals(Money.of(BigDecimal.valueOf(200)), toAccount.getBalance()),
+            () -> verify(accountRepository).creditBucket(eq(toAccount.getId()), intThat(bucket -> bucket >= 0 && bucket < 4), eq(BigDecimal.valueOf(150))),
+            () -> verify(accountRepository, never()).findByUserIdWithPessimisticLock(toUserId),
+            () -> verify(lockRepository).tryLockAll(eq(List.of("account_lock:" + fromUserId)), anyLong(), anyLong(), any())
+        );
+    }
+
+    @Test
+    void nettedBatchToHotAccountShouldCreditBucket() {
+        ReflectionTestUtils.setField(transferService, "netting", true);
+        toAccount.setBucketCount(4);
+        when(hotAccountRegistry.isHot(toUserId)).thenReturn(true);
+        when(accountRepository.findExistingUserIds(any())).thenReturn(List.of(fromUserId, toUserId));
+        when(accountRepository.debitIfSufficientFunds(fromUserId, amount)).thenReturn(1);
+        when(accountRepository.findByUserIdWithSharedLock(toUserId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.sumBuckets(toAccount.getId())).thenReturn(BigDecimal.ZERO);
+
+        transferService.transferBatch(List.of(new TransferCommand(fromUserId, toUserId, amount)));
+
+        verify(accountRepository).creditBucket(eq(toAccount.getId()), anyInt(), eq(amount));
+        verify(accountRepository, never()).creditWithinMaxBalance(any(), any());
+    }
+
+    @Test
+    void transferBatchShouldThrowWhenAccountNotFound() {
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any()))
+            .thenAnswer(invocation -> lockHandles(invocation.getArgument(0)));
+        when(accountRepository.findAllByUserIdsWithPessimisticLock(any())).thenReturn(List.of(fromAccount));
+
+        assertThrows(ResourceNotFoundException.class,
+            () -> transferService.transferBatch(List.of(new TransferCommand(fromUserId, toUserId, amount))));
+
+        verify(accountRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void transferBatchShouldThrowWhenLocksNotAcquired() {
+        when(lockRepository.tryLockAll(anyList(), anyLong(), anyLong(), any())).thenReturn(List.of());
+
+        assertThrows(BusinessException.class,
+            () -> transferService.transferBatch(List.of(new TransferCommand(fromUserId, toUserId, amount))));
+
+        verify(accountRepository, never()).findAllByUserIdsWithPessimisticLock(any());
+        verify(lockRepository, never()).unlockAll(any());
+    }
+
+    @Test
+    void nettedBatchShouldApplyOnlyNonZeroNetDeltasWithoutLocks() {
+        ReflectionTestUtils.setField(transferService, "netting", true);
+        when(accountRepository.findExistingUserIds(any())).thenReturn(List.of(1L, 2L, 3L));
+        when(accountRepository.debitIfSufficientFunds(1L, BigDecimal.valueOf(30))).thenReturn(1);
+        when(accountRepository.creditWithinMaxBalance(3L, BigDecimal.valueOf(30))).thenReturn(1);
+        var transfers = List.of(
+            new TransferCommand(1L, 2L, amount),
+            new TransferCommand(2L, 1L, BigDecimal.valueOf(70)),
+            new TransferCommand(2L, 3L, BigDecimal.valueOf(30))
+        );
+
+        transferService.transferBatch(transfers);
+
+        assertAll(
+            () -> verify(accountRepository, never()).debitIfSufficientFunds(eq(2L), any()),
+            () -> verify(accountRepository, never()).creditWithinMaxBalance(eq(2L), any()),
+            () -> verify(accountRepository, never()).findAllByUserIdsWithPessimisticLock(any()),
+            () -> verify(ledgerService).record(transfers, true),
+            () -> verifyNoInteractions(lockRepository)
+        );
+    }
+
+    @Test
+    void nettedBatchShouldFailWhenNetDebitNotCovered() {
+        ReflectionTestUtils.setField(transferService, "netting", true);
+        when(accountRepository.findExistingUserIds(any())).thenReturn(List.of(1L, 2L));
+        when(accountRepository.debitIfSufficientFunds(1L, amount)).thenReturn(0);
+
+        assertThrows(BusinessException.class,
+            () -> transferService.transferBatch(List.of(new TransferCommand(1L, 2L, amount))));
+
+        verify(accountRepository, never()).creditWithinMaxBalance(any(), any());
+        verify(ledgerService, never()).record(any(), anyBoolean());
+    }
+
+    @Test
+    void nettedBatchShouldThrowWhenAccountNotFound() {
+        ReflectionTestUtils.setField(transferService, "netting", true);
+        when(accountRepository.findExistingUserIds(any())).thenReturn(List.of(1L));
+
+        assertThrows(ResourceNotFoundException.class,
+            () -> transferService.transferBatch(List.of(new TransferCommand(1L, 2L, amount))));
+    }
+
+    @Test
+    void transferBatchShouldThrowWhenEmpty() {
+        assertThrows(BusinessException.class, () -> transferService.transferBatch(List.of()));
     }
 
     @Test
     void validateTransferConditionsShouldThrowForInsufficientFunds() {
-        fromAccount.setBalance(BigDecimal.valueOf(50));
+        fromAccount.setBalance(Money.of(BigDecimal.valueOf(50)));
         assertThrows(BusinessException.class,
             () -> validateTransferConditions(fromAccount, toAccount, amount));
     }
 
     @Test
     void validateTransferConditionsShouldThrowForMaxBalanceExceeded() {
-        toAccount.setBalance(BigDecimal.valueOf(1000));
+        toAccount.setBalance(Money.of(BigDecimal.valueOf(1000)));
         assertThrows(BusinessException.class,
             () -> validateTransferConditions(fromAccount, toAccount, BigDecimal.valueOf(1000)));
     }
 
+    private static List<LockHandle> lockHandles(List<String> keys) {
+        return keys.stream()
+            .map(key -> new LockHandle(key, "owner"))
+            .toList();
+    }
+
     private void validateTransferConditions(Account fromAccount, Account toAccount, BigDecimal amount) {
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
+        if (fromAccount.getBalance().toBigDecimal().compareTo(amount) < 0) {
             var message = "User with is: '%s' with balance: '%s' can not transfer '%s'"
-                    .formatted(fromAccount.getUser().getId(), fromAccount.getBalance(), amount);
+                    .formatted(fromAccount.getUser().getId(), fromAccount.getBalance().toBigDecimal(), amount);
             throw new BusinessException(message);
         }
 
-        BigDecimal newFromBalance = fromAccount.getBalance().subtract(amount);
+        BigDecimal newFromBalance = fromAccount.getBalance().toBigDecimal().subtract(amount);
         if (newFromBalance.compareTo(BigDecimal.ZERO) < 0) {
             var message = "Transfer would result in negative balance";
             throw new BusinessException(message);
         }
 
         // Check if receiver would exceed max balance (207% of initial deposit)
-        BigDecimal maxAllowedBalance = toAccount.getBalance().multiply(new BigDecimal("2.07"));
-        BigDecimal newToBalance = toAccount.getBalance().add(amount);
+        BigDecimal maxAllowedBalance = toAccount.getBalance().toBigDecimal().multiply(new BigDecimal("2.07"));
+        BigDecimal newToBalance = toAccount.getBalance().toBigDecimal().add(amount);
         if (newToBalance.compareTo(maxAllowedBalance) > 0) {
             var message = "Receiver would exceed maximum allowed balance";
             throw new BusinessException(message);
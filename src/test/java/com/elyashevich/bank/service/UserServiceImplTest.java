@@ -1,8 +1,12 @@
 package com.elyashevich.bank.service;
 
 import com.elyashevich.bank.domain.entity.*;
+import com.elyashevich.bank.domain.model.Money;
 import com.elyashevich.bank.exception.*;
+import com.elyashevich.bank.repository.AccountRepository;
 import com.elyashevich.bank.repository.UserRepository;
+import com.elyashevich.bank.service.impl.HotAccountRegistry;
+import com.elyashevich.bank.service.impl.InterestAccrual;
 import com.elyashevich.bank.service.impl.UserServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +14,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.provider.Arguments;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -37,6 +42,15 @@ class UserServiceImplTest {
     @Mock
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Spy
+    private InterestAccrual interestAccrual = new InterestAccrual();
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private HotAccountRegistry hotAccountRegistry;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -45,7 +59,7 @@ class UserServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        testAccount = new Account(1L,  null, BigDecimal.valueOf(1000));
+        testAccount = Account.builder().id(1L).balance(Money.of(BigDecimal.valueOf(1000))).build();
         
         testUser = User.builder()
                 .id(1L)
@@ -90,6 +104,19 @@ class UserServiceImplTest {
         verify(userRepository).findById(1L);
     }
 
+    @Test
+    void findByIdShouldReadBucketsOnlyForHotAccounts() {
+        when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
+
+        assertEquals(Money.of(BigDecimal.valueOf(1000)), userService.findById(1L).getAccount().getTotalBalance());
+        verifyNoInteractions(accountRepository);
+
+        testAccount.setBucketCount(4);
+        when(accountRepository.sumBuckets(1L)).thenReturn(BigDecimal.valueOf(250));
+
+        assertEquals(Money.of(BigDecimal.valueOf(1250)), userService.findById(1L).getAccount().getTotalBalance());
+    }
+
     @Test
     void findByIdShouldThrowWhenNotFound() {
         when(userRepository.findById(2L)).thenReturn(Optional.empty());
@@ -128,7 +155,8 @@ class UserServiceImplTest {
             () -> verify(userRepository).save(testUser),
             () -> assertTrue(testUser.getEmails().stream().allMatch(e -> e.getUser() == testUser)),
             () -> assertTrue(testUser.getPhones().stream().allMatch(p -> p.getUser() == testUser)),
-            () -> assertEquals(testUser, testUser.getAccount().getUser())
+            () -> assertEquals(testUser, testUser.getAccount().getUser()),
+            () -> verify(hotAccountRegistry).splitIfHot(testUser.getId())
         );
     }
 